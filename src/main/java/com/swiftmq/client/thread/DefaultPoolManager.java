@@ -23,6 +23,10 @@ import com.swiftmq.tools.prop.SystemProperties;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DefaultPoolManager extends PoolManager {
+    public static final String PROP_POOL_MODE = "swiftmq.pool.mode";
+    public static final String PROP_CONNECTOR_POOL_MODE = "swiftmq.pool.connector.mode";
+    public static final String PROP_CONN_POOL_MODE = "swiftmq.pool.connection.mode";
+    public static final String PROP_SESSION_POOL_MODE = "swiftmq.pool.session.mode";
     public static final String PROP_CONNECTOR_POOL_MIN_THREADS = "swiftmq.pool.connector.threads.min";
     public static final String PROP_CONNECTOR_POOL_MAX_THREADS = "swiftmq.pool.connector.threads.max";
     public static final String PROP_CONNECTOR_POOL_PRIO = "swiftmq.pool.connector.priority";
@@ -48,6 +52,14 @@ public class DefaultPoolManager extends PoolManager {
 
     ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // Mode "platform" (default) uses ThreadPoolImpl, "virtual" and "forkjoin" use an ExecutorThreadPool
+    private ThreadPool createPool(String name, String modeProp, int min, int max, int len, int add, int prio, long timeout) {
+        String mode = SystemProperties.get(modeProp, SystemProperties.get(PROP_POOL_MODE, ExecutorThreadPool.MODE_PLATFORM));
+        if (mode.equals(ExecutorThreadPool.MODE_VIRTUAL) || mode.equals(ExecutorThreadPool.MODE_FORKJOIN))
+            return new ExecutorThreadPool(name, mode, true, max, prio);
+        return new ThreadPoolImpl(name, true, min, max, len, add, prio, timeout);
+    }
+
     public ThreadPool getConnectionPool() {
         lock.writeLock().lock();
         try {
@@ -58,7 +70,7 @@ public class DefaultPoolManager extends PoolManager {
                 int add = Integer.parseInt(SystemProperties.get(PROP_CONN_POOL_THREADS_ADD, "1"));
                 int prio = Integer.parseInt(SystemProperties.get(PROP_CONN_POOL_PRIO, String.valueOf(Thread.NORM_PRIORITY)));
                 long timeout = Long.parseLong(SystemProperties.get(PROP_CONN_POOL_IDLE_TIMEOUT, "120000"));
-                connectionPool = new ThreadPoolImpl("ConnectionPool", true, min, max, len, add, prio, timeout);
+                connectionPool = createPool("ConnectionPool", PROP_CONN_POOL_MODE, min, max, len, add, prio, timeout);
             }
             return connectionPool;
         } finally {
@@ -77,7 +89,7 @@ public class DefaultPoolManager extends PoolManager {
                 int add = Integer.parseInt(SystemProperties.get(PROP_SESSION_POOL_THREADS_ADD, "1"));
                 int prio = Integer.parseInt(SystemProperties.get(PROP_SESSION_POOL_PRIO, String.valueOf(Thread.NORM_PRIORITY)));
                 long timeout = Long.parseLong(SystemProperties.get(PROP_SESSION_POOL_IDLE_TIMEOUT, "120000"));
-                sessionPool = new ThreadPoolImpl("SessionPool", true, min, max, len, add, prio, timeout);
+                sessionPool = createPool("SessionPool", PROP_SESSION_POOL_MODE, min, max, len, add, prio, timeout);
             }
             return sessionPool;
         } finally {
@@ -96,7 +108,7 @@ public class DefaultPoolManager extends PoolManager {
                 int add = Integer.parseInt(SystemProperties.get(PROP_CONNECTOR_POOL_THREADS_ADD, "1"));
                 int prio = Integer.parseInt(SystemProperties.get(PROP_CONNECTOR_POOL_PRIO, String.valueOf(Thread.NORM_PRIORITY)));
                 long timeout = Long.parseLong(SystemProperties.get(PROP_CONNECTOR_POOL_IDLE_TIMEOUT, "120000"));
-                connectorPool = new ThreadPoolImpl("ConnectorPool", true, min, max, len, add, prio, timeout);
+                connectorPool = createPool("ConnectorPool", PROP_CONNECTOR_POOL_MODE, min, max, len, add, prio, timeout);
             }
             return connectorPool;
         } finally {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.client.thread;
+
+import com.swiftmq.swiftlet.threadpool.AsyncTask;
+import com.swiftmq.swiftlet.threadpool.ThreadPool;
+import com.swiftmq.swiftlet.threadpool.event.FreezeCompletionListener;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A ThreadPool which runs its tasks on an ExecutorService, either one virtual thread
+ * per task (JDK 21+) or a work-stealing ForkJoinPool.
+ * <p>
+ * Tasks are not ordered by the pool. Callers such as the session delivery queue already
+ * guarantee that only one task per session is dispatched at a time, so per-session
+ * serialization is kept.
+ */
+public class ExecutorThreadPool implements ThreadPool {
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_FORKJOIN = "forkjoin";
+
+    String poolName = null;
+    ExecutorService executor = null;
+    Set<AsyncTask> activeTasks = ConcurrentHashMap.newKeySet();
+    volatile boolean closed = false;
+
+    public ExecutorThreadPool(String poolName, String mode, boolean daemonThreads, int parallelism, int priority) {
+        this.poolName = poolName;
+        String tname = "SwiftMQ-" + poolName + "-";
+        if (MODE_VIRTUAL.equals(mode))
+            executor = createVirtualThreadExecutor(tname);
+        if (executor == null)
+            executor = createForkJoinPool(tname, daemonThreads, parallelism, priority);
+    }
+
+    // Virtual threads are available from JDK 21 on, this module is compiled for an older release
+    private static ExecutorService createVirtualThreadExecutor(String tname) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, tname, 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, factory);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService createForkJoinPool(String tname, boolean daemonThreads, int parallelism, int priority) {
+        AtomicInteger tcount = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName(tname + tcount.incrementAndGet());
+            t.setDaemon(daemonThreads);
+            t.setPriority(priority);
+            return t;
+        };
+        if (parallelism <= 0)
+            parallelism = Runtime.getRuntime().availableProcessors();
+        // asyncMode: FIFO scheduling for event-style tasks which are never joined
+        return new ForkJoinPool(parallelism, factory, null, true);
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getNumberRunningThreads() {
+        return activeTasks.size();
+    }
+
+    public int getNumberIdlingThreads() {
+        return 0;
+    }
+
+    public void dispatchTask(AsyncTask task) {
+        if (closed)
+            return;
+        try {
+            executor.execute(() -> execute(task));
+        } catch (RejectedExecutionException ignored) {
+            // closed concurrently
+        }
+    }
+
+    private void execute(AsyncTask task) {
+        if (closed || !task.isValid())
+            return;
+        activeTasks.add(task);
+        try {
+            task.run();
+        } catch (Throwable e) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        } finally {
+            activeTasks.remove(task);
+        }
+    }
+
+    public void freeze(FreezeCompletionListener listener) {
+        // do nothing
+    }
+
+    public void unfreeze() {
+        // do nothing
+    }
+
+    public void stop() {
+    }
+
+    public void close() {
+        closed = true;
+        for (AsyncTask task : activeTasks)
+            task.stop();
+        activeTasks.clear();
+        executor.shutdown();
+    }
+}
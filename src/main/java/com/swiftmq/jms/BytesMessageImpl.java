@@ -25,6 +25,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Implementation of a BytesMessage.
@@ -34,12 +35,15 @@ import java.io.IOException;
 public class BytesMessageImpl extends MessageImpl implements BytesMessage {
     static final int WRITE_ONLY = 0;
     static final int READ_ONLY = 1;
+    static final int ZERO_COPY_THRESHOLD = Integer.parseInt(System.getProperty("swiftmq.jms.bytesmessage.zerocopy.threshold", "65536"));
     int mode = WRITE_ONLY;
 
     DataByteArrayOutputStream dos = null;
     DataByteArrayInputStream dis = null;
     byte[] array = null;
+    int offset = 0;
     int cnt = 0;
+    boolean shared = false;
 
     /**
      * Creates a new BytesMessageImpl.
@@ -70,15 +74,25 @@ public class BytesMessageImpl extends MessageImpl implements BytesMessage {
         }
         out.writeInt(cnt);
         if (cnt > 0)
-            out.write(array, 0, cnt);
+            out.write(array, offset, cnt);
     }
 
     protected void readBody(DataInput in) throws IOException {
         mode = READ_ONLY;
         cnt = in.readInt();
+        offset = 0;
+        shared = false;
         if (cnt > 0) {
-            array = new byte[cnt];
-            in.readFully(array);
+            if (cnt >= ZERO_COPY_THRESHOLD && in instanceof DataByteArrayInputStream && ((DataByteArrayInputStream) in).isSliceable()) {
+                // large body: reference the input buffer instead of copying it
+                DataByteArrayInputStream bin = (DataByteArrayInputStream) in;
+                offset = bin.slice(cnt);
+                array = bin.getBuffer();
+                shared = true;
+            } else {
+                array = new byte[cnt];
+                in.readFully(array);
+            }
         } else
             array = null;
     }
@@ -86,20 +100,28 @@ public class BytesMessageImpl extends MessageImpl implements BytesMessage {
     private void checkRead() {
         if (dis == null) {
             dos = null;
-            byte[] b = null;
             if (array != null && cnt > 0) {
-                b = array;
+                dis = new DataByteArrayInputStream();
+                dis.setBuffer(array, offset, cnt);
             } else
-                b = new byte[0];
-            dis = new DataByteArrayInputStream(b);
+                dis = new DataByteArrayInputStream(new byte[0]);
         }
     }
 
     private void checkWrite() {
         if (dos == null) {
             dos = new DataByteArrayOutputStream();
+            // a shared body is copied on the first write
+            if (shared && array != null && cnt > 0) {
+                try {
+                    dos.write(array, offset, cnt);
+                } catch (IOException e) {
+                }
+            }
             cnt = 0;
+            offset = 0;
             array = null;
+            shared = false;
             dis = null;
         }
     }
@@ -119,9 +141,27 @@ public class BytesMessageImpl extends MessageImpl implements BytesMessage {
     }
 
     public byte[] _getBody() {
+        if (array != null && offset != 0)
+            return Arrays.copyOfRange(array, offset, offset + cnt);
         return array;
     }
 
+    // Shares the body of another message without copying, it is copied on the first write
+    void shareBody(BytesMessageImpl source) {
+        if (source.dos != null) {
+            array = source.dos.getBuffer();
+            cnt = source.dos.getCount();
+            offset = 0;
+        } else {
+            array = source.array;
+            cnt = source.cnt;
+            offset = source.offset;
+        }
+        dos = null;
+        dis = null;
+        shared = array != null;
+    }
+
     // JMS 1.1
     public long getBodyLength() throws JMSException {
         if (mode == WRITE_ONLY) {
@@ -791,13 +831,28 @@ public class BytesMessageImpl extends MessageImpl implements BytesMessage {
             }
         } else {
             if (dos != null) {
-                dis = new DataByteArrayInputStream(dos);
+                // writes are rejected from now on, so the buffer can be read in place
+                dis = new DataByteArrayInputStream();
+                dis.setBuffer(dos.getBuffer(), 0, dos.getCount());
             } else {
                 dis = null;
             }
         }
     }
 
+    protected Object getBodyObject() throws JMSException {
+        if (mode == WRITE_ONLY)
+            throw new MessageNotReadableException("message is in write-only mode");
+        long len = _getBodyLength();
+        if (len == 0)
+            return null;
+        reset();
+        byte[] body = new byte[(int) len];
+        readBytes(body);
+        reset();
+        return body;
+    }
+
     /**
      * Clear out the message body. All other parts of the message are left
      * untouched.
@@ -809,7 +864,9 @@ public class BytesMessageImpl extends MessageImpl implements BytesMessage {
         dis = null;
         dos = null;
         array = null;
+        offset = 0;
         cnt = 0;
+        shared = false;
     }
 
     public String toString() {
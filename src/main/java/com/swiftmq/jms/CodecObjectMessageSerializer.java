@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import com.swiftmq.tools.security.SecureClassLoaderObjectInputStream;
+import com.swiftmq.tools.util.DataByteArrayInputStream;
+import com.swiftmq.tools.util.DataByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An ObjectMessageSerializer for classes with a registered ObjectMessageCodec. Only the type id
+ * of the class is written into the body, no class descriptors. Subclasses register their codecs
+ * in the constructor so they can be selected by class name at the connection factory.
+ * Objects of other classes are written with Java serialization.
+ */
+public class CodecObjectMessageSerializer implements ObjectMessageSerializer {
+    public static final int ID = 1;
+
+    final Map<Integer, Entry> byTypeId = new ConcurrentHashMap<>();
+    final Map<Class, Entry> byClass = new ConcurrentHashMap<>();
+
+    public int getId() {
+        return ID;
+    }
+
+    public <T extends Serializable> void register(int typeId, Class<T> type, ObjectMessageCodec<T> codec) {
+        Entry entry = new Entry(typeId, type, codec);
+        byTypeId.put(typeId, entry);
+        byClass.put(type, entry);
+    }
+
+    public void unregister(int typeId) {
+        Entry entry = byTypeId.remove(typeId);
+        if (entry != null)
+            byClass.remove(entry.type);
+    }
+
+    public boolean canSerialize(Serializable obj) {
+        return byClass.containsKey(obj.getClass());
+    }
+
+    public void serialize(Serializable obj, DataByteArrayOutputStream out) throws IOException {
+        Entry entry = byClass.get(obj.getClass());
+        if (entry == null)
+            throw new NotSerializableException("No codec registered for " + obj.getClass().getName());
+        out.writeInt(entry.typeId);
+        entry.codec.encode(obj, out);
+    }
+
+    public Serializable deserialize(DataByteArrayInputStream in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        int typeId = in.readInt();
+        Entry entry = byTypeId.get(typeId);
+        if (entry == null)
+            throw new ClassNotFoundException("No codec registered for type id " + typeId);
+        if (loader != null && Class.forName(entry.type.getName(), false, loader) != entry.type)
+            throw new ClassNotFoundException(entry.type.getName() + " is not visible to class loader " + loader);
+        SecureClassLoaderObjectInputStream.checkTrusted(entry.type);
+        return entry.codec.decode(in);
+    }
+
+    public String toString() {
+        return "[CodecObjectMessageSerializer, id=" + getId() + ", types=" + byTypeId.size() + "]";
+    }
+
+    private static class Entry {
+        int typeId;
+        Class type;
+        ObjectMessageCodec codec;
+
+        Entry(int typeId, Class type, ObjectMessageCodec codec) {
+            this.typeId = typeId;
+            this.type = type;
+            this.codec = codec;
+        }
+    }
+}
@@ -17,9 +17,11 @@
 
 package com.swiftmq.jms;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
+import com.swiftmq.tools.util.LazyUTF8String;
+
+import jakarta.jms.JMSException;
+import java.io.*;
+import java.util.Arrays;
 
 public class DestinationFactory {
     public static final byte TYPE_QUEUE = 0;
@@ -27,10 +29,80 @@ public class DestinationFactory {
     public static final byte TYPE_TEMPTOPIC = 2;
     public static final byte TYPE_TEMPQUEUE = 3;
 
+    /*
+     * Decoded destination names are interned in a bounded, direct-mapped cache keyed by
+     * their wire representation. Only the already decoded, immutable names are shared; a
+     * hit still returns a new destination instance, as destinations are mutable and are
+     * handed out to applications. A colliding entry is simply replaced. The cache is
+     * process-wide as decoding has no connection context.
+     */
+    static final int CACHE_SIZE = cacheSize(Integer.parseInt(System.getProperty("swiftmq.jms.destination.cache.size", "1024")));
+    static final int MAX_CACHED_KEY_LENGTH = 512;
+    private static final CacheEntry[] cache = CACHE_SIZE > 0 ? new CacheEntry[CACHE_SIZE] : null;
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static int cacheSize(int size) {
+        if (size <= 0)
+            return 0;
+        int n = 1;
+        while (n < size && n < (1 << 16))
+            n <<= 1;
+        return n;
+    }
+
     public static final DestinationImpl createDestination(DataInput in)
             throws IOException {
         byte b = in.readByte();
-        DestinationImpl dest = null;
+        if (cache != null && b >= TYPE_QUEUE && b <= TYPE_TEMPQUEUE)
+            return createInterned(b, in);
+        return createDestination(b, in);
+    }
+
+    private static DestinationImpl createInterned(byte type, DataInput in) throws IOException {
+        Scratch sc = scratch.get();
+        sc.len = 0;
+        sc.put(type);
+        if (type == TYPE_TOPIC || type == TYPE_TEMPTOPIC) {
+            byte set = in.readByte();
+            sc.put(set);
+            if (set == 1)
+                sc.readUTF(in);
+        }
+        sc.readUTF(in);
+
+        byte[] buf = sc.buf;
+        int len = sc.len;
+        int h = 1;
+        for (int i = 0; i < len; i++)
+            h = 31 * h + buf[i];
+        int idx = (h ^ (h >>> 16)) & (cache.length - 1);
+        CacheEntry entry = cache[idx];
+        if (entry != null && entry.matches(buf, len)) {
+            QueueImpl dest = newDestination(type);
+            dest.queueName = entry.queueName;
+            if (dest instanceof TopicImpl)
+                ((TopicImpl) dest).topicName = entry.topicName;
+            return dest;
+        }
+
+        byte[] key = Arrays.copyOf(buf, len);
+        DestinationImpl dest = createDestination(type, new DataInputStream(new ByteArrayInputStream(key, 1, len - 1)));
+        if (len <= MAX_CACHED_KEY_LENGTH) {
+            // decode the names now so shared names never decode concurrently
+            try {
+                ((QueueImpl) dest).getQueueName();
+                if (dest instanceof TopicImpl)
+                    ((TopicImpl) dest).getTopicName();
+            } catch (JMSException e) {
+                return dest;
+            }
+            cache[idx] = new CacheEntry(key, ((QueueImpl) dest).queueName, dest instanceof TopicImpl ? ((TopicImpl) dest).topicName : null);
+        }
+        return dest;
+    }
+
+    private static QueueImpl newDestination(byte b) {
+        QueueImpl dest = null;
         switch (b) {
             case TYPE_TEMPQUEUE:
                 dest = new TemporaryQueueImpl(null, null);
@@ -45,6 +117,11 @@ public class DestinationFactory {
                 dest = new TemporaryTopicImpl();
                 break;
         }
+        return dest;
+    }
+
+    private static DestinationImpl createDestination(byte b, DataInput in) throws IOException {
+        DestinationImpl dest = newDestination(b);
         dest.readContent(in);
         return dest;
     }
@@ -54,5 +131,44 @@ public class DestinationFactory {
         out.writeByte(dest.getType());
         dest.writeContent(out);
     }
-}
 
+    private static class CacheEntry {
+        final byte[] key;
+        final LazyUTF8String queueName;
+        final LazyUTF8String topicName;
+
+        CacheEntry(byte[] key, LazyUTF8String queueName, LazyUTF8String topicName) {
+            this.key = key;
+            this.queueName = queueName;
+            this.topicName = topicName;
+        }
+
+        boolean matches(byte[] buf, int len) {
+            return key.length == len && Arrays.equals(key, 0, len, buf, 0, len);
+        }
+    }
+
+    private static class Scratch {
+        byte[] buf = new byte[256];
+        int len = 0;
+
+        private void ensure(int n) {
+            if (len + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buf[len++] = b;
+        }
+
+        void readUTF(DataInput in) throws IOException {
+            int utfLength = in.readUnsignedShort();
+            ensure(utfLength + 2);
+            buf[len++] = (byte) ((utfLength >>> 8) & 0xFF);
+            buf[len++] = (byte) (utfLength & 0xFF);
+            in.readFully(buf, len, utfLength);
+            len += utfLength;
+        }
+    }
+}
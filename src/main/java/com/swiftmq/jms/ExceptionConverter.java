@@ -20,7 +20,8 @@ package com.swiftmq.jms;
 import com.swiftmq.tools.requestreply.TimeoutException;
 import com.swiftmq.tools.requestreply.TransportException;
 
-import jakarta.jms.JMSException;
+import jakarta.jms.*;
+import jakarta.jms.IllegalStateException;
 
 public class ExceptionConverter {
     public static JMSException convert(Exception exception) {
@@ -36,6 +37,34 @@ public class ExceptionConverter {
             return e;
         }
     }
+
+    public static JMSRuntimeException convertRuntime(Exception exception) {
+        JMSException e = convert(exception);
+        JMSRuntimeException rte;
+        if (e instanceof IllegalStateException)
+            rte = new IllegalStateRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof InvalidClientIDException)
+            rte = new InvalidClientIDRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof InvalidDestinationException)
+            rte = new InvalidDestinationRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof InvalidSelectorException)
+            rte = new InvalidSelectorRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof JMSSecurityException)
+            rte = new JMSSecurityRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof MessageFormatException)
+            rte = new MessageFormatRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof MessageNotWriteableException)
+            rte = new MessageNotWriteableRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof ResourceAllocationException)
+            rte = new ResourceAllocationRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof TransactionInProgressException)
+            rte = new TransactionInProgressRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else if (e instanceof TransactionRolledBackException)
+            rte = new TransactionRolledBackRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        else
+            rte = new JMSRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        return rte;
+    }
 }
 
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import com.swiftmq.tools.security.SecureClassLoaderObjectInputStream;
+import com.swiftmq.tools.util.DataByteArrayInputStream;
+import com.swiftmq.tools.util.DataByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * The default ObjectMessageSerializer which uses Java serialization. Its body is written
+ * without a serializer id to stay compatible with other clients.
+ */
+public class JavaObjectMessageSerializer implements ObjectMessageSerializer {
+    public static final int ID = 0;
+
+    public int getId() {
+        return ID;
+    }
+
+    public void serialize(Serializable obj, DataByteArrayOutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(obj);
+        oos.close();
+    }
+
+    public Serializable deserialize(DataByteArrayInputStream in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new SecureClassLoaderObjectInputStream(in, loader);
+        Serializable obj = (Serializable) ois.readObject();
+        ois.close();
+        return obj;
+    }
+
+    public String toString() {
+        return "[JavaObjectMessageSerializer]";
+    }
+}
@@ -28,6 +28,8 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Implementation of a MapMessage.
@@ -43,6 +45,18 @@ public class MapMessageImpl extends MessageImpl implements MapMessage {
         return TYPE_MAPMESSAGE;
     }
 
+    // Encoded map bytes are shared, a decoded map is copied with its (immutable) values
+    void shareBody(MapMessageImpl source) {
+        if (source.map == null) {
+            map = null;
+            mapBytes = source.mapBytes;
+        } else {
+            map = new MessageProperties();
+            map.map.putAll(source.map.map);
+            mapBytes = null;
+        }
+    }
+
     public void setReadOnly(boolean b) {
         super.setReadOnly(b);
         bodyReadOnly = b;
@@ -481,6 +495,18 @@ public class MapMessageImpl extends MessageImpl implements MapMessage {
         return map.exists(name);
     }
 
+    protected Object getBodyObject() throws JMSException {
+        Enumeration names = getMapNames();
+        if (!names.hasMoreElements())
+            return null;
+        Map<String, Object> body = new HashMap<>();
+        while (names.hasMoreElements()) {
+            String name = (String) names.nextElement();
+            body.put(name, getObject(name));
+        }
+        return body;
+    }
+
     /**
      * Clear out the message body. All other parts of the message are left
      * untouched.
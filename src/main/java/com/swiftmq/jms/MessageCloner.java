@@ -23,6 +23,10 @@ import java.util.Enumeration;
 
 public class MessageCloner {
     private static void cloneBytesMessage(BytesMessage source, BytesMessage destination) throws jakarta.jms.JMSException {
+        if (source instanceof BytesMessageImpl && destination instanceof BytesMessageImpl) {
+            ((BytesMessageImpl) destination).shareBody((BytesMessageImpl) source);
+            return;
+        }
         byte[] buffer = new byte[256];
         try {
             source.reset();
@@ -90,7 +94,31 @@ public class MessageCloner {
         return destination;
     }
 
+    // Structural copy between SwiftMQ messages of the same class, shares immutable parts
+    private static boolean shareContent(Message source, Message destination) {
+        if (!(source instanceof MessageImpl) || source.getClass() != destination.getClass())
+            return false;
+        if (source instanceof BytesMessageImpl)
+            ((BytesMessageImpl) destination).shareBody((BytesMessageImpl) source);
+        else if (source instanceof StreamMessageImpl)
+            ((StreamMessageImpl) destination).shareBody((StreamMessageImpl) source);
+        else if (source instanceof TextMessageImpl)
+            ((TextMessageImpl) destination).shareBody((TextMessageImpl) source);
+        else if (source instanceof ObjectMessageImpl)
+            ((ObjectMessageImpl) destination).shareBody((ObjectMessageImpl) source);
+        else if (source instanceof MapMessageImpl)
+            ((MapMessageImpl) destination).shareBody((MapMessageImpl) source);
+        ((MessageImpl) destination).cloneHeaderFrom((MessageImpl) source);
+        return true;
+    }
+
     public static Message cloneMessage(Message source) throws jakarta.jms.JMSException {
+        if (source instanceof MessageImpl) {
+            Message destination = MessageImpl.createInstance(((MessageImpl) source).getType());
+            if (shareContent(source, destination))
+                return destination;
+        }
+
         Message destination = null;
 
         // clone extending classes
@@ -119,25 +147,33 @@ public class MessageCloner {
     public static Message cloneMessage(Message source, Session session) throws jakarta.jms.JMSException {
         Message destination = null;
 
-        // clone extending classes
-        if (source instanceof BytesMessage) {
+        if (source instanceof BytesMessage)
             destination = session.createBytesMessage();
-            cloneBytesMessage((BytesMessage) source, (BytesMessage) destination);
-        } else if (source instanceof StreamMessage) {
+        else if (source instanceof StreamMessage)
             destination = session.createStreamMessage();
-            cloneStreamMessage((StreamMessage) source, (StreamMessage) destination);
-        } else if (source instanceof TextMessage) {
+        else if (source instanceof TextMessage)
             destination = session.createTextMessage();
-            cloneTextMessage((TextMessage) source, (TextMessage) destination);
-        } else if (source instanceof ObjectMessage) {
+        else if (source instanceof ObjectMessage)
             destination = session.createObjectMessage();
-            cloneObjectMessage((ObjectMessage) source, (ObjectMessage) destination);
-        } else if (source instanceof MapMessage) {
+        else if (source instanceof MapMessage)
             destination = session.createMapMessage();
-            cloneMapMessage((MapMessage) source, (MapMessage) destination);
-        } else {
+        else
             destination = session.createMessage();
-        }
+
+        if (shareContent(source, destination))
+            return destination;
+
+        // clone extending classes
+        if (source instanceof BytesMessage)
+            cloneBytesMessage((BytesMessage) source, (BytesMessage) destination);
+        else if (source instanceof StreamMessage)
+            cloneStreamMessage((StreamMessage) source, (StreamMessage) destination);
+        else if (source instanceof TextMessage)
+            cloneTextMessage((TextMessage) source, (TextMessage) destination);
+        else if (source instanceof ObjectMessage)
+            cloneObjectMessage((ObjectMessage) source, (ObjectMessage) destination);
+        else if (source instanceof MapMessage)
+            cloneMapMessage((MapMessage) source, (MapMessage) destination);
 
         return cloneContent(source, destination);
     }
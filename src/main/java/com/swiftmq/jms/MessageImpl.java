@@ -18,6 +18,7 @@
 package com.swiftmq.jms;
 
 import com.swiftmq.swiftlet.queue.MessageIndex;
+import com.swiftmq.tools.dump.Dumpable;
 import com.swiftmq.tools.util.DataByteArrayInputStream;
 import com.swiftmq.tools.util.DataByteArrayOutputStream;
 import com.swiftmq.tools.util.LazyUTF8String;
@@ -29,6 +30,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Enumeration;
+import java.util.Map;
 
 /**
  * Implementation of a Message.
@@ -529,8 +531,54 @@ public class MessageImpl implements Message, Serializable {
     }
 
     public void removeProperty(String name) {
-        if (props != null)
-            props.remove(name);
+        if (props == null && propBytes == null)
+            return;
+        checkProps();
+        props.remove(name);
+        propBytes = null;
+    }
+
+    private static boolean isProviderProperty(String name) {
+        return name.regionMatches(true, 0, "JMS_", 0, 4) || name.regionMatches(true, 0, "JMSX", 0, 4);
+    }
+
+    private static LazyUTF8String shareable(LazyUTF8String s) {
+        // decoded once so that shared instances are never decoded concurrently
+        if (s != null)
+            s.getString();
+        return s;
+    }
+
+    /*
+     * Used by MessageCloner. Takes the correlation ID, the type and all properties except
+     * JMS_ and JMSX ones from the source without re-encoding: header strings and encoded
+     * property bytes are immutable and shared, property values are immutable as well.
+     */
+    void cloneHeaderFrom(MessageImpl source) {
+        correlationId = shareable(source.correlationId);
+        type = shareable(source.type);
+        redelivered = false;
+        if (source.props == null && source.propBytes == null)
+            return;
+        source.checkProps();
+        boolean filter = false;
+        for (String name : source.props.map.keySet()) {
+            if (isProviderProperty(name)) {
+                filter = true;
+                break;
+            }
+        }
+        if (!filter && source.propBytes != null) {
+            propBytes = source.propBytes;
+            props = null;
+            return;
+        }
+        props = new MessageProperties();
+        for (Map.Entry<String, Dumpable> entry : source.props.map.entrySet()) {
+            if (!filter || !isProviderProperty(entry.getKey()))
+                props.map.put(entry.getKey(), entry.getValue());
+        }
+        propBytes = null;
     }
 
     /**
@@ -1416,14 +1464,25 @@ public class MessageImpl implements Message, Serializable {
     public void clearBody() throws JMSException {
     }
 
+    // Body as returned by getBody, null if there is none. Subclasses override this.
+    protected Object getBodyObject() throws JMSException {
+        return null;
+    }
+
     @Override
     public <T> T getBody(Class<T> aClass) throws JMSException {
-        return null;
+        Object body = getBodyObject();
+        if (body == null)
+            return null;
+        if (!aClass.isInstance(body))
+            throw new MessageFormatException("Message body of type " + body.getClass().getName() + " is not assignable to " + aClass.getName());
+        return aClass.cast(body);
     }
 
     @Override
     public boolean isBodyAssignableTo(Class aClass) throws JMSException {
-        return false;
+        Object body = getBodyObject();
+        return body == null || aClass.isInstance(body);
     }
 
     public void reset() throws JMSException {
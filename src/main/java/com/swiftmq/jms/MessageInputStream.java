@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import com.swiftmq.swiftlet.queue.QueueOutputStream;
+
+import jakarta.jms.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TreeMap;
+
+/**
+ * A MessageInputStream reassembles the chunks sent by a <code>MessageOutputStream</code>
+ * in sequence. Only one chunk is held in memory at a time, plus up to <code>windowSize</code>
+ * chunks which arrived out of sequence. If the window is full and the stream is still out of
+ * sequence, an IOException is thrown. A receive timeout is turned into an IOException, too.
+ * <p>
+ * Large payloads can be spilled into a file with <code>spillToFile</code> and accessed
+ * through memory-mapped buffers.
+ * <p>
+ * If no stream id is given, the stream id of the first received chunk is used for the rest
+ * of the stream. In a transacted or CLIENT_ACKNOWLEDGE session, the chunks are committed or
+ * acknowledged after every <code>windowSize</code> in-sequence chunks have been read, like
+ * the <code>MessageOutputStream</code> commits on the sending side, and when the end of the
+ * stream has been read. This is deferred while chunks that arrived out of sequence are held,
+ * as they would be committed or acknowledged before they have been read.
+ *
+ * @see MessageOutputStream
+ */
+public class MessageInputStream extends InputStream {
+    Session session;
+    Destination destination;
+    String streamId;
+    MessageConsumer consumer;
+    long receiveTimeout;
+    int windowSize;
+    TreeMap<Integer, BytesMessage> backlog = new TreeMap<>();
+    byte[] buffer = new byte[0];
+    int actSize = 0;
+    int count = 0;
+    int actSeq = -1;
+    int uncompleted = 0;
+    Message lastChunk = null;
+    boolean eof = false;
+    boolean closed = false;
+
+    /**
+     * Creates a new MessageInputStream.
+     *
+     * @param session        session.
+     * @param destination    destination.
+     * @param streamId       stream id of the MessageOutputStream or null to read any stream.
+     * @param receiveTimeout receive timeout, 0 waits forever.
+     * @param windowSize     max. number of chunks kept out of sequence and number of chunks per
+     *                       commit or acknowledge.
+     * @throws JMSException on error.
+     */
+    public MessageInputStream(Session session, Destination destination, String streamId, long receiveTimeout, int windowSize) throws JMSException {
+        this.session = session;
+        this.destination = destination;
+        this.streamId = streamId;
+        this.consumer = session.createConsumer(destination, streamId == null ? null : createSelector(streamId));
+        this.receiveTimeout = receiveTimeout;
+        this.windowSize = windowSize;
+    }
+
+    private static String createSelector(String streamId) {
+        return MessageOutputStream.STREAM_ID + " = '" + streamId.replace("'", "''") + "'";
+    }
+
+    // Continues with a consumer for the stream of the first chunk, so chunks of other streams
+    // stay in the queue. Unacknowledged messages of the closed consumer are redelivered.
+    private void pinStream(Message msg) throws JMSException {
+        streamId = msg.getStringProperty(MessageOutputStream.STREAM_ID);
+        if (streamId == null)
+            throw new JMSException("Message without " + MessageOutputStream.STREAM_ID + " property");
+        consumer.close();
+        consumer = session.createConsumer(destination, createSelector(streamId));
+    }
+
+    private void complete(Message lastChunk) throws JMSException {
+        if (session.getTransacted())
+            session.commit();
+        else if (session.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE)
+            lastChunk.acknowledge();
+    }
+
+    private BytesMessage receive() throws IOException {
+        Message msg;
+        try {
+            msg = receiveTimeout > 0 ? consumer.receive(receiveTimeout) : consumer.receive();
+        } catch (JMSException e) {
+            throw new IOException(e.toString());
+        }
+        if (msg == null)
+            throw new IOException("Receive timeout or consumer closed");
+        if (!(msg instanceof BytesMessage))
+            throw new IOException("Unexpected message type: " + msg.getClass().getName());
+        if (streamId == null) {
+            try {
+                pinStream(msg);
+            } catch (JMSException e) {
+                throw new IOException(e.toString());
+            }
+        }
+        return (BytesMessage) msg;
+    }
+
+    private boolean ensureNextChunk() throws IOException {
+        if (closed)
+            throw new IOException("Stream is closed");
+        if (count < actSize)
+            return true;
+        if (eof)
+            return false;
+        try {
+            // All chunks received so far have been read
+            if (uncompleted > 0 && uncompleted >= windowSize && backlog.isEmpty()) {
+                complete(lastChunk);
+                uncompleted = 0;
+            }
+            BytesMessage msg = backlog.remove(actSeq + 1);
+            while (msg == null) {
+                if (backlog.size() >= windowSize)
+                    throw new IOException("Stream out of sequence, window size " + windowSize + " exceeded");
+                BytesMessage m = receive();
+                int seqNo = m.getIntProperty(QueueOutputStream.SEQNO);
+                if (seqNo == actSeq + 1)
+                    msg = m;
+                else if (seqNo > actSeq)
+                    backlog.put(seqNo, m);
+            }
+            actSeq++;
+            actSize = msg.getIntProperty(QueueOutputStream.SIZE);
+            eof = msg.propertyExists(QueueOutputStream.EOF) && msg.getBooleanProperty(QueueOutputStream.EOF);
+            if (buffer.length < actSize)
+                buffer = new byte[actSize];
+            msg.readBytes(buffer, actSize);
+            count = 0;
+            lastChunk = msg;
+            uncompleted++;
+            if (eof) {
+                complete(msg);
+                uncompleted = 0;
+            }
+        } catch (JMSException e) {
+            throw new IOException(e.toString());
+        }
+        return actSize > 0 || ensureNextChunk();
+    }
+
+    public int read() throws IOException {
+        if (!ensureNextChunk())
+            return -1;
+        return buffer[count++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureNextChunk())
+            return -1;
+        int n = Math.min(len, actSize - count);
+        System.arraycopy(buffer, count, b, off, n);
+        count += n;
+        return n;
+    }
+
+    public int available() throws IOException {
+        return actSize - count;
+    }
+
+    /**
+     * Reads this stream until EOF and writes it to an output stream.
+     *
+     * @param out output stream.
+     * @return number of bytes transferred.
+     * @throws IOException on error.
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        long total = 0;
+        while (ensureNextChunk()) {
+            int n = actSize - count;
+            out.write(buffer, count, n);
+            count += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Reads this stream until EOF into a file and maps the file read-only into memory.
+     * As a single mapping is limited to 2 GB, larger files are returned as consecutive regions.
+     *
+     * @param file file.
+     * @return mapped regions of the file.
+     * @throws IOException on error.
+     */
+    public MappedByteBuffer[] spillToFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            while (ensureNextChunk()) {
+                int n = actSize - count;
+                ByteBuffer bb = ByteBuffer.wrap(buffer, count, n);
+                while (bb.hasRemaining())
+                    channel.write(bb);
+                count += n;
+            }
+            long size = channel.size();
+            int nRegions = (int) ((size + Integer.MAX_VALUE - 1) / Integer.MAX_VALUE);
+            MappedByteBuffer[] regions = new MappedByteBuffer[nRegions];
+            for (int i = 0; i < nRegions; i++) {
+                long pos = (long) i * Integer.MAX_VALUE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Integer.MAX_VALUE, size - pos));
+            }
+            return regions;
+        }
+    }
+
+    /**
+     * Closes this stream and its consumer. The session remains open.
+     *
+     * @throws IOException on error.
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        backlog.clear();
+        try {
+            consumer.close();
+        } catch (JMSException e) {
+            throw new IOException(e.toString());
+        }
+    }
+}
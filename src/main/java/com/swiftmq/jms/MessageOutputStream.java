@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import com.swiftmq.swiftlet.queue.QueueOutputStream;
+
+import jakarta.jms.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * A MessageOutputStream splits a byte stream into chunks and sends each chunk as a
+ * BytesMessage to a destination. Together with a <code>MessageInputStream</code>, it enables
+ * the transfer of payloads of arbitrary size with constant memory on both sides.
+ * <p>
+ * The chunks carry the same properties as those of a <code>QueueOutputStream</code>
+ * (sequence number, size, EOF) plus a stream id, so a consumer can select a single stream.
+ * If the session is transacted, the stream commits after every <code>windowSize</code>
+ * chunks, which bounds the number of uncommitted chunks. Otherwise the router's flow
+ * control is applied by the producer on each reply.
+ *
+ * @see MessageInputStream
+ */
+public class MessageOutputStream extends OutputStream {
+    public static final String STREAM_ID = "QIO$ID";
+
+    Session session;
+    MessageProducer producer;
+    String streamId;
+    byte[] chunk;
+    int count = 0;
+    int seqNo = 0;
+    int windowSize;
+    int uncommitted = 0;
+    boolean closed = false;
+
+    /**
+     * Creates a new MessageOutputStream.
+     *
+     * @param session     session.
+     * @param destination destination.
+     * @param chunkSize   chunk size in bytes.
+     * @param windowSize  number of chunks per commit if the session is transacted.
+     * @throws JMSException on error.
+     */
+    public MessageOutputStream(Session session, Destination destination, int chunkSize, int windowSize) throws JMSException {
+        this.session = session;
+        this.producer = session.createProducer(destination);
+        this.chunk = new byte[chunkSize];
+        this.windowSize = windowSize;
+        this.streamId = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Returns the stream id which is set as property on every chunk.
+     *
+     * @return stream id.
+     */
+    public String getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Set the JMS delivery mode of the chunks.
+     *
+     * @param deliveryMode delivery mode.
+     * @throws JMSException on error.
+     */
+    public void setDeliveryMode(int deliveryMode) throws JMSException {
+        producer.setDeliveryMode(deliveryMode);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream is closed");
+    }
+
+    private void sendChunk(boolean eof) throws IOException {
+        try {
+            BytesMessage msg = session.createBytesMessage();
+            msg.writeBytes(chunk, 0, count);
+            msg.setStringProperty(STREAM_ID, streamId);
+            msg.setIntProperty(QueueOutputStream.SEQNO, seqNo);
+            msg.setIntProperty(QueueOutputStream.SIZE, count);
+            if (eof)
+                msg.setBooleanProperty(QueueOutputStream.EOF, true);
+            producer.send(msg);
+            seqNo++;
+            count = 0;
+            if (session.getTransacted() && (++uncommitted >= windowSize || eof)) {
+                session.commit();
+                uncommitted = 0;
+            }
+        } catch (JMSException e) {
+            throw new IOException(e.toString());
+        }
+    }
+
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == chunk.length)
+            sendChunk(false);
+        chunk[count++] = (byte) b;
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == chunk.length)
+                sendChunk(false);
+            int n = Math.min(len, chunk.length - count);
+            System.arraycopy(b, off, chunk, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Reads the input stream until its end and writes its content to this stream.
+     * The input stream is not closed.
+     *
+     * @param in input stream.
+     * @return number of bytes transferred.
+     * @throws IOException on error.
+     */
+    public long transferFrom(InputStream in) throws IOException {
+        ensureOpen();
+        long total = 0;
+        int n;
+        while (true) {
+            if (count == chunk.length)
+                sendChunk(false);
+            n = in.read(chunk, count, chunk.length - count);
+            if (n == -1)
+                break;
+            count += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Sends the current chunk, if any.
+     *
+     * @throws IOException on error.
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0)
+            sendChunk(false);
+    }
+
+    /**
+     * Sends the final chunk with the EOF property and closes the producer. The session remains open.
+     *
+     * @throws IOException on error.
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        sendChunk(true);
+        closed = true;
+        try {
+            producer.close();
+        } catch (JMSException e) {
+            throw new IOException(e.toString());
+        }
+    }
+}
@@ -15,21 +15,20 @@
  *
  */
 
-package com.swiftmq.jms.v750.po;
 
-import com.swiftmq.tools.pipeline.POObject;
-import com.swiftmq.tools.pipeline.POVisitor;
+package com.swiftmq.jms;
 
-public class POGetClientIdRequest extends POObject {
-    public POGetClientIdRequest() {
-        super(null, null);
-    }
+import com.swiftmq.tools.util.DataByteArrayInputStream;
+import com.swiftmq.tools.util.DataByteArrayOutputStream;
 
-    public void accept(POVisitor visitor) {
-        ((ReconnectVisitor) visitor).visit(this);
-    }
+import java.io.IOException;
+import java.io.Serializable;
 
-    public String toString() {
-        return "[POGetClientIdRequest]";
-    }
+/**
+ * Encodes and decodes objects of a single class registered at a CodecObjectMessageSerializer.
+ */
+public interface ObjectMessageCodec<T extends Serializable> {
+    public void encode(T obj, DataByteArrayOutputStream out) throws IOException;
+
+    public T decode(DataByteArrayInputStream in) throws IOException;
 }
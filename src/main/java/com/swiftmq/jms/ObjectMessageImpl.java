@@ -17,7 +17,6 @@
 
 package com.swiftmq.jms;
 
-import com.swiftmq.tools.security.SecureClassLoaderObjectInputStream;
 import com.swiftmq.tools.util.DataByteArrayInputStream;
 import com.swiftmq.tools.util.DataByteArrayOutputStream;
 
@@ -30,16 +29,25 @@ import java.io.*;
  * Implementation of a ObjectMessage. There is one additional method <code>getObject(classLoader)</code>
  * which must be used by Extension Swiftlet, passing their own classloader to construct the object.
  * This is required due to hot deployment of Extension Swiftlets and different class loaders.
+ * <p>
+ * The payload is serialized by an ObjectMessageSerializer. Java serialization is the default and
+ * is written as is. Bodies of other serializers start with a magic and the serializer id.
+ * The deserialized object is cached until the body changes.
  *
  * @author IIT GmbH, Bremen/Germany, Copyright (c) 2000-2002, All Rights Reserved
  */
 public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
     static final String PROP_BUFFERSIZE = "swiftmq.jms.objectmessage.buffersize";
     static final int BUFFERSIZE = Integer.parseInt(System.getProperty(PROP_BUFFERSIZE, "8192"));
+    static final int CODEC_MAGIC = 0x534D;
     boolean bodyReadOnly = false;
     byte[] array = null;
     int cnt = 0;
     boolean useThreadContextCL = false;
+    ObjectMessageSerializer serializer = ObjectMessageSerializerRegistry.DEFAULT;
+    Serializable cachedObject = null;
+    ClassLoader cachedLoader = null;
+    boolean cacheValid = false;
 
     protected int getType() {
         return TYPE_OBJECTMESSAGE;
@@ -63,6 +71,7 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
             cnt = array.length;
         } else
             cnt = 0;
+        invalidateCache();
     }
 
     public boolean isUseThreadContextCL() {
@@ -73,21 +82,44 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         this.useThreadContextCL = useThreadContextCL;
     }
 
+    public ObjectMessageSerializer getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(ObjectMessageSerializer serializer) {
+        this.serializer = serializer == null ? ObjectMessageSerializerRegistry.DEFAULT : serializer;
+    }
+
+    private void invalidateCache() {
+        cacheValid = false;
+        cachedObject = null;
+        cachedLoader = null;
+    }
+
     private void serialize(Serializable obj) throws IOException {
         DataByteArrayOutputStream bos = new DataByteArrayOutputStream(BUFFERSIZE);
-        ObjectOutputStream oos = new ObjectOutputStream(bos);
-        oos.writeObject(obj);
-        oos.close();
+        ObjectMessageSerializer s = serializer.canSerialize(obj) ? serializer : ObjectMessageSerializerRegistry.DEFAULT;
+        if (s.getId() != JavaObjectMessageSerializer.ID) {
+            bos.writeShort(CODEC_MAGIC);
+            bos.writeInt(s.getId());
+        }
+        s.serialize(obj, bos);
         array = bos.getBuffer();
         cnt = bos.getCount();
     }
 
     private Serializable deserialize(byte[] b, ClassLoader loader) throws IOException, ClassNotFoundException {
-        DataByteArrayInputStream bis = new DataByteArrayInputStream(b);
-        ObjectInputStream ois = new SecureClassLoaderObjectInputStream(loader == null ? bis : bis, loader);
-        Serializable obj = (Serializable) ois.readObject();
-        ois.close();
-        return obj;
+        DataByteArrayInputStream bis = new DataByteArrayInputStream();
+        bis.setBuffer(b, 0, cnt);
+        ObjectMessageSerializer s = ObjectMessageSerializerRegistry.DEFAULT;
+        if (cnt >= 6 && b[0] == (byte) (CODEC_MAGIC >> 8) && b[1] == (byte) CODEC_MAGIC) {
+            bis.readShort();
+            int id = bis.readInt();
+            s = ObjectMessageSerializerRegistry.get(id);
+            if (s == null)
+                throw new ClassNotFoundException("No ObjectMessageSerializer registered with id " + id);
+        }
+        return s.deserialize(bis, loader);
     }
 
     /**
@@ -102,8 +134,13 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
      */
     public Serializable getObject(ClassLoader customLoader) throws JMSException {
         if (cnt > 0) {
+            if (cacheValid && cachedLoader == customLoader)
+                return cachedObject;
             try {
-                return deserialize(array, customLoader);
+                cachedObject = deserialize(array, customLoader);
+                cachedLoader = customLoader;
+                cacheValid = true;
+                return cachedObject;
             } catch (Exception e) {
                 throw new JMSException(e.toString());
             }
@@ -111,6 +148,14 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         return null;
     }
 
+    // The serialized form is immutable, setObject replaces the array
+    void shareBody(ObjectMessageImpl source) {
+        array = source.array;
+        cnt = source.cnt;
+        serializer = source.serializer;
+        invalidateCache();
+    }
+
     public void setReadOnly(boolean b) {
         super.setReadOnly(b);
         bodyReadOnly = b;
@@ -142,6 +187,7 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         if (bodyReadOnly) {
             throw new MessageNotWriteableException("Message is read only");
         }
+        invalidateCache();
         if (obj == null)
             cnt = 0;
         else {
@@ -153,6 +199,10 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         }
     }
 
+    protected Object getBodyObject() throws JMSException {
+        return getObject();
+    }
+
     /**
      * Clear out the message body. All other parts of the message are left
      * untouched.
@@ -163,6 +213,7 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         super.clearBody();
         bodyReadOnly = false;
         cnt = 0;
+        invalidateCache();
     }
 
     public String toString() {
@@ -172,6 +223,8 @@ public class ObjectMessageImpl extends MessageImpl implements ObjectMessage {
         b.append(array);
         b.append(" cnt=");
         b.append(cnt);
+        b.append(" serializer=");
+        b.append(serializer);
         b.append("]");
         return b.toString();
     }
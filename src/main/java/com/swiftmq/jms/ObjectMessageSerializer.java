@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import com.swiftmq.tools.util.DataByteArrayInputStream;
+import com.swiftmq.tools.util.DataByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Serializes the payload of an ObjectMessage. The id of the serializer is written into the
+ * message body (except for the Java serialization default) so that the receiver can select
+ * the matching serializer from the ObjectMessageSerializerRegistry.
+ */
+public interface ObjectMessageSerializer {
+    public int getId();
+
+    /**
+     * Returns whether this serializer can write the object. Otherwise the message falls back
+     * to Java serialization.
+     *
+     * @param obj object
+     * @return true if serialize accepts the object
+     */
+    public default boolean canSerialize(Serializable obj) {
+        return true;
+    }
+
+    public void serialize(Serializable obj, DataByteArrayOutputStream out) throws IOException;
+
+    public Serializable deserialize(DataByteArrayInputStream in, ClassLoader loader) throws IOException, ClassNotFoundException;
+}
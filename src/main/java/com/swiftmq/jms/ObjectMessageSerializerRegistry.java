@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.jms;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of ObjectMessageSerializers, keyed by their id. The Java serialization default is
+ * always registered. Serializers configured at a connection factory are registered when a
+ * connection is created.
+ */
+public class ObjectMessageSerializerRegistry {
+    public static final ObjectMessageSerializer DEFAULT = new JavaObjectMessageSerializer();
+
+    static final Map<Integer, ObjectMessageSerializer> serializers = new ConcurrentHashMap<>();
+
+    static {
+        register(DEFAULT);
+    }
+
+    public static void register(ObjectMessageSerializer serializer) {
+        serializers.put(serializer.getId(), serializer);
+    }
+
+    public static ObjectMessageSerializer get(int id) {
+        return serializers.get(id);
+    }
+
+    public static ObjectMessageSerializer create(String className) throws Exception {
+        if (className == null)
+            return DEFAULT;
+        ObjectMessageSerializer serializer = (ObjectMessageSerializer) Class.forName(className).getDeclaredConstructor().newInstance();
+        ObjectMessageSerializer registered = serializers.putIfAbsent(serializer.getId(), serializer);
+        if (registered != null && registered.getClass() != serializer.getClass())
+            throw new Exception("Serializer id " + serializer.getId() + " of " + className + " is already used by " + registered.getClass().getName());
+        return registered != null ? registered : serializer;
+    }
+}
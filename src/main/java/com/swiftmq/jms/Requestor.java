@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Request/reply over a single reply queue, created by SwiftMQSession.createRequestor.
+ * <p>
+ * Futures are completed on the delivery thread of the requestor's session. Timeouts complete
+ * them on the timer thread, and close on the calling thread. Dependent actions attached with
+ * the non-async CompletableFuture methods run on these threads as well; they must not block
+ * and must not use the requestor's session. Use the async variants to continue on another
+ * executor.
+ */
+public interface Requestor {
+    /**
+     * Sends a request with the default timeout of this requestor. The request gets a
+     * JMSCorrelationID and the requestor's reply queue as JMSReplyTo; the replier has to
+     * copy the JMSCorrelationID into the reply.
+     *
+     * @param request request message
+     * @return future, completed with the reply or exceptionally with a RequestTimeoutException
+     * @throws JMSException if the request could not be sent
+     */
+    public CompletableFuture<Message> request(Message request) throws JMSException;
+
+    /**
+     * Sends a request with a specific timeout.
+     *
+     * @param request request message
+     * @param timeout timeout in milliseconds, 0 waits forever
+     * @return future, completed with the reply or exceptionally with a RequestTimeoutException
+     * @throws JMSException if the request could not be sent
+     */
+    public CompletableFuture<Message> request(Message request, long timeout) throws JMSException;
+
+    /**
+     * Returns the number of requests awaiting a reply.
+     *
+     * @return number of pending requests
+     */
+    public int getPendingRequests();
+
+    /**
+     * Closes the requestor and fails all pending requests.
+     *
+     * @throws JMSException on error
+     */
+    public void close() throws JMSException;
+}
@@ -40,6 +40,7 @@ public class StreamMessageImpl extends MessageImpl implements StreamMessage {
     int amount = 0;
     Primitive[] elements = null;
     int nElements = 0;
+    boolean elementsShared = false;
 
     protected int getType() {
         return TYPE_STREAMMESSAGE;
@@ -58,6 +59,7 @@ public class StreamMessageImpl extends MessageImpl implements StreamMessage {
 
     protected void readBody(DataInput in) throws IOException {
         nElements = in.readInt();
+        elementsShared = false;
         if (nElements > 0) {
             elements = new Primitive[nElements];
             for (int i = 0; i < elements.length; i++) {
@@ -524,10 +526,11 @@ public class StreamMessageImpl extends MessageImpl implements StreamMessage {
             elements = new Primitive[DEFAULT_SIZE];
             nElements = 0;
         } else {
-            if (nElements == elements.length) {
-                Primitive[] p = new Primitive[elements.length + DEFAULT_SIZE];
+            if (elementsShared || nElements == elements.length) {
+                Primitive[] p = new Primitive[nElements + DEFAULT_SIZE];
                 System.arraycopy(elements, 0, p, 0, nElements);
                 elements = p;
+                elementsShared = false;
             }
         }
     }
@@ -783,7 +786,25 @@ public class StreamMessageImpl extends MessageImpl implements StreamMessage {
      *
      * @throws JMSException if JMS fails to due to some internal JMS error.
      */
+    public <T> T getBody(Class<T> aClass) throws JMSException {
+        throw new MessageFormatException("getBody is not supported for StreamMessage");
+    }
+
+    public boolean isBodyAssignableTo(Class aClass) throws JMSException {
+        return false;
+    }
+
+    // Elements are immutable, the array is copied on the first write
+    void shareBody(StreamMessageImpl source) {
+        elements = source.elements;
+        nElements = source.nElements;
+        elementsShared = elements != null;
+        pos = 0;
+        mode = WRITE_ONLY;
+    }
+
     public void clearBody() throws JMSException {
+        elementsShared = false;
         elements = null;
         nElements = 0;
         pos = 0;
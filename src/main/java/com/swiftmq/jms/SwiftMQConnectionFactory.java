@@ -51,6 +51,7 @@ public class SwiftMQConnectionFactory {
     public static final String OUTPUT_BUFFER_SIZE = "output_buffer_size";
     public static final String OUTPUT_EXTEND_SIZE = "output_extend_size";
     public static final String INTRAVM = "intravm";
+    public static final String INTRAVM_OBJECT_PASSING = "intravm_object_passing";
     public static final String RECONNECT_ENABLED = "reconnect_enabled";
     public static final String RECONNECT_RETRY_DELAY = "reconnect_retry_delay";
     public static final String RECONNECT_MAX_RETRIES = "reconnect_max_retries";
@@ -58,6 +59,7 @@ public class SwiftMQConnectionFactory {
     public static final String RECONNECT_PORT2 = "reconnect_port2";
     public static final String DUPLICATE_DETECTION_ENABLED = "duplicate_detection_enabled";
     public static final String DUPLICATE_BACKLOG_SIZE = "duplicate_backlog_size";
+    public static final String OBJECTMESSAGE_SERIALIZER = "objectmessage_serializer";
 
     static {
         if (Boolean.valueOf(System.getProperty("swiftmq.client.debugtofile.enabled", "false")).booleanValue()) {
@@ -162,6 +164,7 @@ public class SwiftMQConnectionFactory {
                     Integer.parseInt(getDefaultProp(OUTPUT_BUFFER_SIZE, properties, "1400")),
                     Integer.parseInt(getDefaultProp(OUTPUT_EXTEND_SIZE, properties, "1400")),
                     true);
+            cf.setIntraVMObjectPassing(Boolean.valueOf(getDefaultProp(INTRAVM_OBJECT_PASSING, properties, "false")).booleanValue());
         } else {
             cf = new com.swiftmq.jms.v750.ConnectionFactoryImpl(null,
                     getMandatoryProp(SOCKETFACTORY, properties),
@@ -191,6 +194,7 @@ public class SwiftMQConnectionFactory {
             cf.setDuplicateMessageDetection(Boolean.valueOf(getDefaultProp(DUPLICATE_DETECTION_ENABLED, properties, "false")).booleanValue());
             cf.setDuplicateBacklogSize(Integer.parseInt(getDefaultProp(DUPLICATE_BACKLOG_SIZE, properties, "30000")));
         }
+        cf.setObjectMessageSerializerClass(getDefaultProp(OBJECTMESSAGE_SERIALIZER, properties, null));
         return cf;
     }
 }
@@ -23,4 +23,19 @@ public interface SwiftMQMessageConsumer {
     public boolean acknowledgeMessage(MessageImpl message) throws JMSException;
 
     public boolean isClosed();
+
+    /**
+     * Enables delivery on the connection reader thread. It saves the hand-off to the session
+     * thread pool and applies if the session is not transacted, not CLIENT_ACKNOWLEDGE, and this
+     * consumer is its only one and has a MessageListener. Otherwise messages are delivered as usual.
+     * <p>
+     * The reader thread can't read replies while it runs onMessage. Requests that need a reply
+     * therefore fail with a JMSException within onMessage: PERSISTENT sends, creating or closing
+     * producers and consumers, and any other synchronous call on the connection. NON_PERSISTENT
+     * sends work but get no flow control reply. A slow onMessage delays every session of the connection.
+     *
+     * @param directDispatch true to enable
+     * @throws JMSException if the session is transacted or CLIENT_ACKNOWLEDGE
+     */
+    public void setDirectDispatch(boolean directDispatch) throws JMSException;
 }
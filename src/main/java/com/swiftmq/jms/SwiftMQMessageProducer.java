@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms;
+
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.util.List;
+
+public interface SwiftMQMessageProducer {
+    /**
+     * Sends a list of messages to the producer's destination. The requests are written
+     * back-to-back and replies are awaited once for the whole list, so persistent
+     * non-transacted messages cost one round trip per list instead of one per message.
+     * Each message of the list must be a distinct instance.
+     *
+     * @param messages messages
+     * @throws JMSException on error, after all replies of the list have been received
+     */
+    public void send(List<? extends Message> messages) throws JMSException;
+
+    /**
+     * Sends a list of messages to a destination with an unidentified producer.
+     *
+     * @param destination destination
+     * @param messages    messages
+     * @throws JMSException on error, after all replies of the list have been received
+     */
+    public void send(Destination destination, List<? extends Message> messages) throws JMSException;
+}
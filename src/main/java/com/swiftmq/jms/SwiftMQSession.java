@@ -19,8 +19,25 @@ package com.swiftmq.jms;
 
 import com.swiftmq.swiftlet.queue.MessageIndex;
 
+import jakarta.jms.Destination;
 import jakarta.jms.JMSException;
 
 public interface SwiftMQSession {
     public boolean acknowledgeMessage(MessageIndex messageIndex) throws JMSException;
+
+    /**
+     * Creates a requestor which sends requests to a destination and receives all replies
+     * through a single temporary queue and consumer, matched by JMSCorrelationID. The
+     * requestor installs a message listener, so the session should be dedicated to it.
+     * The session must be non-transacted with AUTO_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE:
+     * in a transacted session requests would only be sent on commit, and replies would
+     * never be acknowledged in a CLIENT_ACKNOWLEDGE session.
+     *
+     * @param destination request destination
+     * @param timeout     default request timeout in milliseconds, 0 waits forever
+     * @return requestor
+     * @throws JMSException on error
+     * @throws jakarta.jms.IllegalStateException if the session is transacted or CLIENT_ACKNOWLEDGE
+     */
+    public Requestor createRequestor(Destination destination, long timeout) throws JMSException;
 }
@@ -25,6 +25,7 @@ import jakarta.jms.TemporaryQueue;
 public class TemporaryQueueImpl extends QueueImpl implements TemporaryQueue {
     transient SwiftMQConnection connection = null;
     transient SessionImpl creatingSession = null;
+    transient volatile boolean deleted = false;
 
     public TemporaryQueueImpl(String queueName, SwiftMQConnection connection) {
         super(queueName);
@@ -47,7 +48,10 @@ public class TemporaryQueueImpl extends QueueImpl implements TemporaryQueue {
     public void delete() throws JMSException {
         if (connection == null)
             throw new JMSException("Cannot delete; you are not the creator of this TemporaryQueue!");
+        if (deleted)
+            throw new JMSException("TemporaryQueue has already been deleted!");
         connection.deleteTempQueue(getQueueName());
+        deleted = true;
     }
 
 }
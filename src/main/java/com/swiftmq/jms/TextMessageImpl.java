@@ -86,9 +86,15 @@ public class TextMessageImpl extends MessageImpl implements TextMessage {
             return null;
         if (lazy.length == 1)
             return lazy[0].getString();
-        StringBuffer b = new StringBuffer();
-        for (int i = 0; i < lazy.length; i++)
-            b.append(lazy[i].getString());
+        String[] parts = new String[lazy.length];
+        int len = 0;
+        for (int i = 0; i < lazy.length; i++) {
+            parts[i] = lazy[i].getString();
+            len += parts[i].length();
+        }
+        StringBuilder b = new StringBuilder(len);
+        for (int i = 0; i < parts.length; i++)
+            b.append(parts[i]);
         return b.toString();
     }
 
@@ -117,11 +123,20 @@ public class TextMessageImpl extends MessageImpl implements TextMessage {
             lazy = null;
     }
 
+    // Chunks are immutable, setText replaces the array
+    void shareBody(TextMessageImpl source) {
+        lazy = source.lazy;
+    }
+
     public void setReadOnly(boolean b) {
         super.setReadOnly(b);
         bodyReadOnly = b;
     }
 
+    protected Object getBodyObject() throws JMSException {
+        return getText();
+    }
+
     /**
      * Clear out the message body. All other parts of the message are left
      * untouched.
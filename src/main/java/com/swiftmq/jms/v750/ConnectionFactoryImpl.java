@@ -19,6 +19,9 @@ package com.swiftmq.jms.v750;
 
 import com.swiftmq.client.thread.PoolManager;
 import com.swiftmq.jms.CompoundConnectionFactory;
+import com.swiftmq.jms.ExceptionConverter;
+import com.swiftmq.jms.ObjectMessageSerializer;
+import com.swiftmq.jms.ObjectMessageSerializerRegistry;
 import com.swiftmq.jms.SwiftMQConnectionFactory;
 import com.swiftmq.net.SocketFactory;
 import com.swiftmq.net.SocketFactory2;
@@ -27,6 +30,7 @@ import com.swiftmq.net.client.IntraVMReconnector;
 import com.swiftmq.net.client.Reconnector;
 import com.swiftmq.net.client.ServerEntry;
 import com.swiftmq.tools.dump.Dumpable;
+import com.swiftmq.tools.timer.TimerRegistry;
 
 import jakarta.jms.*;
 import javax.naming.NamingException;
@@ -72,6 +76,9 @@ public class ConnectionFactoryImpl
     long retryDelay = 0;
     boolean duplicateMessageDetection = false;
     int duplicateBacklogSize = 500;
+    String objectMessageSerializerClass = null;
+    boolean intraVMObjectPassing = false;
+    transient Map<String, SharedContextConnection> contextConnections = null;
 
     public ConnectionFactoryImpl(String listenerName, String socketFactoryClass, String hostname, int port, long keepaliveInterval,
                                  String clientId, int smqpProducerReplyInterval, int smqpConsumerCacheSize, int smqpConsumerCacheSizeKB, int jmsDeliveryMode,
@@ -165,6 +172,22 @@ public class ConnectionFactoryImpl
         this.duplicateBacklogSize = duplicateBacklogSize;
     }
 
+    public String getObjectMessageSerializerClass() {
+        return objectMessageSerializerClass;
+    }
+
+    public void setObjectMessageSerializerClass(String objectMessageSerializerClass) {
+        this.objectMessageSerializerClass = objectMessageSerializerClass;
+    }
+
+    public boolean isIntraVMObjectPassing() {
+        return intraVMObjectPassing;
+    }
+
+    public void setIntraVMObjectPassing(boolean intraVMObjectPassing) {
+        this.intraVMObjectPassing = intraVMObjectPassing;
+    }
+
     public int getDumpId() {
         return 0;
     }
@@ -294,7 +317,9 @@ public class ConnectionFactoryImpl
             try {
                 List servers = new ArrayList();
                 servers.add(new ServerEntry("intravm", 0));
-                reconnector = new IntraVMReconnector(servers, null, false, 0, 0, Boolean.valueOf(System.getProperty("swiftmq.reconnect.debug", "false")).booleanValue());
+                Map parameters = new HashMap();
+                parameters.put(SwiftMQConnectionFactory.INTRAVM_OBJECT_PASSING, Boolean.valueOf(intraVMObjectPassing));
+                reconnector = new IntraVMReconnector(servers, parameters, false, 0, 0, Boolean.valueOf(System.getProperty("swiftmq.reconnect.debug", "false")).booleanValue());
             } catch (Exception e) {
                 throw new JMSException("error creating intraVM connection, message: " + e.getMessage());
             }
@@ -324,6 +349,14 @@ public class ConnectionFactoryImpl
         return reconnector;
     }
 
+    private ObjectMessageSerializer createObjectMessageSerializer() throws JMSException {
+        try {
+            return ObjectMessageSerializerRegistry.create(objectMessageSerializerClass);
+        } catch (Exception e) {
+            throw new JMSException("error creating object message serializer " + objectMessageSerializerClass + ", message: " + e.getMessage());
+        }
+    }
+
     // --> JMS 1.1
     public Connection createConnection() throws JMSException {
         return createConnection(null, null);
@@ -333,6 +366,7 @@ public class ConnectionFactoryImpl
         // create connection and return it
         ConnectionImpl qc = new ConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -344,29 +378,96 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
         return (qc);
     }
 
+    synchronized SharedContextConnection acquireContextConnection(String userName, String password) throws JMSException {
+        if (contextConnections == null)
+            contextConnections = new HashMap<>();
+        String key = (userName == null ? "" : userName) + '\0' + (password == null ? "" : password);
+        SharedContextConnection scc = contextConnections.get(key);
+        if (scc == null || !scc.isUsable()) {
+            if (scc != null && scc.refCount == 0)
+                scc.close();
+            scc = new SharedContextConnection(key, userName, password, false, (ConnectionImpl) createConnection(userName, password));
+            contextConnections.put(key, scc);
+        }
+        scc.refCount++;
+        scc.idleEpoch++;
+        return scc;
+    }
+
+    // A connection with a client ID is not shared with contexts created by this factory
+    SharedContextConnection createDedicatedContextConnection(SharedContextConnection template, String clientID) throws JMSException {
+        ConnectionImpl connection = (ConnectionImpl) createConnection(template.userName, template.password);
+        try {
+            connection.setClientID(clientID);
+            SharedContextConnection scc = new SharedContextConnection(null, template.userName, template.password, true, connection);
+            scc.refCount = 1;
+            return scc;
+        } catch (JMSException e) {
+            try {
+                connection.close();
+            } catch (JMSException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    synchronized SharedContextConnection acquireContextConnection(SharedContextConnection scc) {
+        scc.refCount++;
+        scc.idleEpoch++;
+        return scc;
+    }
+
+    synchronized void releaseContextConnection(SharedContextConnection scc) {
+        if (--scc.refCount > 0)
+            return;
+        if (!scc.isUsable() || scc.dedicated || SharedContextConnection.IDLE_TIMEOUT <= 0) {
+            closeContextConnection(scc);
+            return;
+        }
+        int epoch = ++scc.idleEpoch;
+        TimerRegistry.Singleton().addInstantTimerListener(SharedContextConnection.IDLE_TIMEOUT, evt -> closeIdleContextConnection(scc, epoch));
+    }
+
+    private synchronized void closeIdleContextConnection(SharedContextConnection scc, int epoch) {
+        if (scc.refCount == 0 && scc.idleEpoch == epoch)
+            closeContextConnection(scc);
+    }
+
+    private void closeContextConnection(SharedContextConnection scc) {
+        if (!scc.dedicated && contextConnections.get(scc.key) == scc)
+            contextConnections.remove(scc.key);
+        scc.close();
+    }
+
     @Override
     public JMSContext createContext() {
-        return null;
+        return createContext(null, null, JMSContext.AUTO_ACKNOWLEDGE);
     }
 
     @Override
-    public JMSContext createContext(String s, String s1) {
-        return null;
+    public JMSContext createContext(String userName, String password) {
+        return createContext(userName, password, JMSContext.AUTO_ACKNOWLEDGE);
     }
 
     @Override
-    public JMSContext createContext(String s, String s1, int i) {
-        return null;
+    public JMSContext createContext(String userName, String password, int sessionMode) {
+        JMSContextImpl.verifySessionMode(sessionMode);
+        try {
+            return new JMSContextImpl(this, acquireContextConnection(userName, password), sessionMode);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
     }
 
     @Override
-    public JMSContext createContext(int i) {
-        return null;
+    public JMSContext createContext(int sessionMode) {
+        return createContext(null, null, sessionMode);
     }
 
     public XAConnection createXAConnection() throws JMSException {
@@ -377,6 +478,7 @@ public class ConnectionFactoryImpl
         // create connection and return it
         XAConnectionImpl qc = new XAConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -388,6 +490,7 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
         return (qc);
@@ -395,12 +498,24 @@ public class ConnectionFactoryImpl
 
     @Override
     public XAJMSContext createXAContext() {
-        return null;
+        return createXAContext(null, null);
     }
 
     @Override
-    public XAJMSContext createXAContext(String s, String s1) {
-        return null;
+    public XAJMSContext createXAContext(String userName, String password) {
+        XAConnectionImpl connection = null;
+        try {
+            connection = (XAConnectionImpl) createXAConnection(userName, password);
+            return new XAJMSContextImpl(connection, (XASessionImpl) connection.createXASession());
+        } catch (JMSException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (JMSException ignored) {
+                }
+            }
+            throw ExceptionConverter.convertRuntime(e);
+        }
     }
     // <-- JMS 1.1
 
@@ -413,6 +528,7 @@ public class ConnectionFactoryImpl
         // create queue connection and return it
         QueueConnectionImpl qc = new QueueConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -424,6 +540,7 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
         return (qc);
@@ -437,6 +554,7 @@ public class ConnectionFactoryImpl
         // create queue connection and return it
         XAQueueConnectionImpl qc = new XAQueueConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -448,6 +566,7 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
         return (qc);
@@ -463,6 +582,7 @@ public class ConnectionFactoryImpl
         // create queue connection and return it
         TopicConnectionImpl qc = new TopicConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -474,6 +594,7 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
 
@@ -488,6 +609,7 @@ public class ConnectionFactoryImpl
         // create queue connection and return it
         XATopicConnectionImpl qc = new XATopicConnectionImpl(userName == null ? "anonymous" : userName, password, createReconnector());
         qc.assignClientId(clientId);
+        qc.setConnectionFactory(this);
         qc.setSmqpProducerReplyInterval(smqpProducerReplyInterval);
         qc.setSmqpConsumerCacheSize(smqpConsumerCacheSize);
         qc.setSmqpConsumerCacheSizeKB(smqpConsumerCacheSizeKB);
@@ -499,6 +621,7 @@ public class ConnectionFactoryImpl
         qc.setUseThreadContextCL(useThreadContextCL);
         qc.setDuplicateMessageDetection(duplicateMessageDetection);
         qc.setDuplicateBacklogSize(duplicateBacklogSize);
+        qc.setObjectMessageSerializer(createObjectMessageSerializer());
         if (keepaliveInterval > 0)
             qc.startKeepAlive(keepaliveInterval);
 
@@ -23,8 +23,9 @@ import com.swiftmq.jms.*;
 import com.swiftmq.jms.smqp.SMQPVersionRequest;
 import com.swiftmq.jms.smqp.v750.*;
 import com.swiftmq.jms.v750.po.POReconnect;
+import com.swiftmq.net.client.DumpableInboundHandler;
 import com.swiftmq.net.client.ExceptionHandler;
-import com.swiftmq.net.client.InboundHandler;
+import com.swiftmq.net.client.IntraVMConnection;
 import com.swiftmq.net.client.Reconnector;
 import com.swiftmq.swiftlet.threadpool.AsyncTask;
 import com.swiftmq.swiftlet.threadpool.ThreadPool;
@@ -40,6 +41,7 @@ import com.swiftmq.tools.requestreply.*;
 import com.swiftmq.tools.timer.TimerEvent;
 import com.swiftmq.tools.timer.TimerListener;
 import com.swiftmq.tools.timer.TimerRegistry;
+import com.swiftmq.tools.util.DataByteArrayOutputStream;
 import com.swiftmq.tools.util.DataStreamOutputStream;
 import com.swiftmq.tools.util.LengthCaptureDataInput;
 import com.swiftmq.util.SwiftUtilities;
@@ -56,7 +58,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class ConnectionImpl extends RequestServiceRegistry
-        implements SwiftMQConnection, Connection, ReplyHandler, RequestHandler, TimerListener, InboundHandler, ExceptionHandler, RecreatableConnection {
+        implements SwiftMQConnection, Connection, ReplyHandler, RequestHandler, TimerListener, DumpableInboundHandler, ExceptionHandler, RecreatableConnection {
     public static final String DISPATCH_TOKEN = "sys$jms.client.connection.connectiontask";
 
     public static final int CLIENT_VERSION = 750;
@@ -64,6 +66,9 @@ public class ConnectionImpl extends RequestServiceRegistry
     public static final int CONNECTED_STOPPED = 0;
     public static final int CONNECTED_STARTED = 1;
     public static final int INITIAL_KEEPALIVE_COUNT = Integer.parseInt(System.getProperty("swiftmq.jms.keepalive.missing.threshold", "5"));
+    static final String SHARED_CLIENT_ID_PREFIX = System.getProperty("swiftmq.jms.shared.clientid.prefix", "shared_");
+    static final int SHARED_SUBSCRIBE_RETRIES = Integer.parseInt(System.getProperty("swiftmq.jms.shared.subscribe.retries", "20"));
+    static final long SHARED_SUBSCRIBE_RETRY_DELAY = Long.parseLong(System.getProperty("swiftmq.jms.shared.subscribe.retry.delay", "100"));
 
     KeepAliveRequest keepaliveRequest = new KeepAliveRequest();
 
@@ -80,6 +85,10 @@ public class ConnectionImpl extends RequestServiceRegistry
     List sessionList = new ConcurrentList<>(new ArrayList<>());
     List connectionConsumerList = new ConcurrentList<>(new ArrayList<>());
     Map tmpQueues = new ConcurrentHashMap<>();
+    SharedSubscriptions sharedSubscriptions = new SharedSubscriptions(SHARED_CLIENT_ID_PREFIX);
+    TemporaryQueuePool tmpQueuePool = TemporaryQueuePool.POOL_SIZE > 0 ? new TemporaryQueuePool(this, TemporaryQueuePool.POOL_SIZE) : null;
+    ConnectionFactoryImpl connectionFactory = null;
+    ProducerOutbox producerOutbox = null;
     DumpableFactory dumpableFactory = new com.swiftmq.jms.smqp.SMQPFactory(new SMQPFactory());
     boolean cancelled = false;
     boolean clientIdAllowed = true;
@@ -97,6 +106,7 @@ public class ConnectionImpl extends RequestServiceRegistry
     boolean jmsMessageIdEnabled = false;
     boolean jmsMessageTimestampEnabled = false;
     boolean useThreadContextCL = false;
+    ObjectMessageSerializer objectMessageSerializer = ObjectMessageSerializerRegistry.DEFAULT;
     final AtomicBoolean duplicateMessageDetection = new AtomicBoolean(false);
     final AtomicInteger duplicateBacklogSize = new AtomicInteger(500);
     OrderedSet duplicateLog = new ConcurrentOrderedSet(500);
@@ -104,6 +114,7 @@ public class ConnectionImpl extends RequestServiceRegistry
     ConnectionTask connectionTask = null;
     ThreadPool connectionPool = null;
     DataStreamOutputStream outStream = null;
+    IntraVMConnection objectConnection = null;
     Reconnector reconnector = null;
     final AtomicReference<GetAuthChallengeReply> authReply = new AtomicReference<>();
     Connector connector = null;
@@ -141,6 +152,13 @@ public class ConnectionImpl extends RequestServiceRegistry
         requestRegistry.setRequestTimeoutEnabled(!reconnector.isEnabled());
         requestRegistry.setRequestHandler(this);
         setReplyHandler(this);
+        if (ProducerOutbox.DIRECTORY != null && reconnector.isEnabled()) {
+            try {
+                producerOutbox = new ProducerOutbox(this);
+            } catch (IOException e) {
+                throw new JMSException("Unable to create the producer outbox in " + ProducerOutbox.DIRECTORY + ": " + e);
+            }
+        }
     }
 
     public boolean isReconnectEnabled() {
@@ -206,6 +224,7 @@ public class ConnectionImpl extends RequestServiceRegistry
         }
         if (requestRegistry != null)
             requestRegistry.setPaused(true);
+        reconnectInProgress.set(true);
         resetSessions(true);
         if (connection != null) {
             reconnector.invalidateConnection();
@@ -311,6 +330,10 @@ public class ConnectionImpl extends RequestServiceRegistry
             inputActiveIndicator = new AtomicBoolean(false);
             connection.setInputActiveIndicator(inputActiveIndicator);
             outStream = new DataStreamOutputStream(connection.getOutputStream());
+            if (connection instanceof IntraVMConnection && ((IntraVMConnection) connection).isObjectPassing())
+                objectConnection = (IntraVMConnection) connection;
+            else
+                objectConnection = null;
             if (connectionQueue != null) {
                 connectionQueue.clear();
                 connectionQueue.startQueue();
@@ -323,6 +346,9 @@ public class ConnectionImpl extends RequestServiceRegistry
                 retrySem.waitHere();
             }
             resetSessions(false);
+            reconnectInProgress.set(false);
+            if (producerOutbox != null)
+                producerOutbox.drain();
             notifyReconnectListener();
             setSessionBlockState(false);
         }
@@ -390,6 +416,93 @@ public class ConnectionImpl extends RequestServiceRegistry
         return internalCID;
     }
 
+    void setConnectionFactory(ConnectionFactoryImpl connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /*
+     * SMQP has no notion of shared subscriptions. A shared subscription is therefore mapped
+     * to a durable subscription and all consumers of it are receivers on the durable subscriber
+     * queue, so they compete for messages. The owner of the durable subscription is the client
+     * ID of this connection, if set. Otherwise it is derived from the subscription name and the
+     * subscription is created through a short-lived helper connection with that client ID so that
+     * consumers of different connections (and JVMs) end up on the same queue.
+     * Deviating from JMS 2.0, a non-durable shared subscription is not removed when its last
+     * consumer is closed, as consumers of other connections can't be seen here. It remains until
+     * unsubscribe is called with its name.
+     */
+    String attachSharedSubscription(Topic topic, String name, String messageSelector) throws JMSException {
+        String owner = sharedSubscriptions.getOwner(originalCID, name);
+        try {
+            SwiftUtilities.verifyClientId(owner);
+            SwiftUtilities.verifyDurableName(name);
+        } catch (Exception e) {
+            throw new JMSException(e.getMessage());
+        }
+        String queueName = SharedSubscriptions.getQueueName(owner, name);
+        String key = SharedSubscriptions.getKey(queueName, topic.getTopicName(), messageSelector);
+        if (sharedSubscriptions.isAttached(key))
+            return queueName;
+        if (originalCID != null)
+            subscribeDurable(this, topic, name, messageSelector);
+        else
+            subscribeDurableWithHelper(owner, topic, name, messageSelector);
+        sharedSubscriptions.setAttached(key);
+        return queueName;
+    }
+
+    private void subscribeDurableWithHelper(String owner, Topic topic, String name, String messageSelector) throws JMSException {
+        if (connectionFactory == null)
+            throw new IllegalStateException("unable to create shared subscription, no client ID has been set");
+        InvalidClientIDException last = null;
+        for (int i = 0; i < SHARED_SUBSCRIBE_RETRIES; i++) {
+            Connection helper = connectionFactory.createConnection(userName, password);
+            try {
+                helper.setClientID(owner);
+                subscribeDurable(helper, topic, name, messageSelector);
+                return;
+            } catch (InvalidClientIDException e) {
+                // another connection is attaching to the same subscription right now
+                last = e;
+            } finally {
+                helper.close();
+            }
+            try {
+                Thread.sleep(SHARED_SUBSCRIBE_RETRY_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw last != null ? last : new JMSException("unable to create shared subscription '" + name + "'");
+    }
+
+    private static void subscribeDurable(Connection connection, Topic topic, String name, String messageSelector) throws JMSException {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        try {
+            session.createDurableSubscriber(topic, name, messageSelector, false).close();
+        } finally {
+            session.close();
+        }
+    }
+
+    void detachSharedSubscription(String name) throws JMSException {
+        String owner = sharedSubscriptions.getOwner(originalCID, name);
+        sharedSubscriptions.detach(SharedSubscriptions.getQueueName(owner, name));
+        if (originalCID != null)
+            return;
+        if (connectionFactory == null)
+            throw new IllegalStateException("unable to unsubscribe, no client ID has been set");
+        Connection helper = connectionFactory.createConnection(userName, password);
+        try {
+            helper.setClientID(owner);
+            Session session = helper.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.unsubscribe(name);
+        } finally {
+            helper.close();
+        }
+    }
+
     int getSmqpProducerReplyInterval() {
         return smqpProducerReplyInterval;
     }
@@ -462,6 +575,14 @@ public class ConnectionImpl extends RequestServiceRegistry
         this.useThreadContextCL = useThreadContextCL;
     }
 
+    ObjectMessageSerializer getObjectMessageSerializer() {
+        return objectMessageSerializer;
+    }
+
+    void setObjectMessageSerializer(ObjectMessageSerializer objectMessageSerializer) {
+        this.objectMessageSerializer = objectMessageSerializer;
+    }
+
     public boolean isDuplicateMessageDetection() {
         return duplicateMessageDetection.get();
     }
@@ -576,7 +697,25 @@ public class ConnectionImpl extends RequestServiceRegistry
         return connectionState;
     }
 
+    boolean hasReceiverOn(String queueName) {
+        for (Object session : sessionList) {
+            if (((SessionImpl) session).hasReceiverOn(queueName))
+                return true;
+        }
+        return false;
+    }
+
+    TemporaryQueueImpl leaseTempQueue(SessionImpl session) {
+        return tmpQueuePool != null ? tmpQueuePool.lease(session) : null;
+    }
+
     public void deleteTempQueue(String queueName) throws JMSException {
+        if (tmpQueuePool != null && tmpQueuePool.release(queueName))
+            return;
+        deleteTempQueueOnRouter(queueName);
+    }
+
+    void deleteTempQueueOnRouter(String queueName) throws JMSException {
         Reply reply = null;
         try {
             reply = requestRegistry.request(new DeleteTmpQueueRequest(0, queueName));
@@ -623,13 +762,15 @@ public class ConnectionImpl extends RequestServiceRegistry
     }
 
     @Override
-    public Session createSession(int i) throws JMSException {
-        return null;
+    public Session createSession(int sessionMode) throws JMSException {
+        if (sessionMode == Session.SESSION_TRANSACTED)
+            return createSession(true, sessionMode);
+        return createSession(false, sessionMode);
     }
 
     @Override
     public Session createSession() throws JMSException {
-        return null;
+        return createSession(false, Session.AUTO_ACKNOWLEDGE);
     }
 
     public ConnectionConsumer createConnectionConsumer(jakarta.jms.Queue queue,
@@ -808,10 +949,40 @@ public class ConnectionImpl extends RequestServiceRegistry
         exceptionListener = listener;
     }
 
+    void notifyExceptionListener(JMSException exception) {
+        ExceptionListener listener = exceptionListener;
+        if (listener != null)
+            listener.onException(exception);
+        else
+            System.err.println(toString() + ": " + exception.getMessage());
+    }
+
+    // Requests are passed by reference to an intra-VM router, so a message the
+    // application may reuse after send() is snapshotted into its serialized form.
+    private Dumpable isolate(Dumpable obj) throws IOException {
+        if (obj.getDumpId() == SMQPFactory.DID_PRODUCEMESSAGE_REQ) {
+            ProduceMessageRequest request = (ProduceMessageRequest) obj;
+            MessageImpl msg = request.getSingleMessage();
+            if (msg != null) {
+                DataByteArrayOutputStream dbos = new DataByteArrayOutputStream(2048);
+                msg.writeContent(dbos);
+                byte[] b = new byte[dbos.getCount()];
+                System.arraycopy(dbos.getBuffer(), 0, b, 0, b.length);
+                request.setMessageCopy(b);
+                request.setSingleMessage(null);
+            }
+        }
+        return obj;
+    }
+
     private void writeObject(Dumpable obj) throws Exception {
         try {
-            Dumpalizer.dump(outStream, obj);
-            outStream.flush();
+            if (objectConnection != null)
+                objectConnection.writeDumpable(isolate(obj));
+            else {
+                Dumpalizer.dump(outStream, obj);
+                outStream.flush();
+            }
         } catch (IOException e) {
             if (reconnector.isDebug())
                 System.out.println(new Date() + " " + toString() + ": writeObject, exception= " + e);
@@ -832,6 +1003,11 @@ public class ConnectionImpl extends RequestServiceRegistry
         connectionQueue.enqueue(request);
     }
 
+    // Requests without reply, written within one bulk request
+    void performRequests(Request[] requests, int n) {
+        connectionQueue.enqueue(requests, n);
+    }
+
     public void performReply(Reply reply) {
         connectionQueue.enqueue(reply);
     }
@@ -866,24 +1042,44 @@ public class ConnectionImpl extends RequestServiceRegistry
         }
     }
 
+    private void dispatchInbound(Dumpable obj) {
+        if (obj.getDumpId() == SMQPFactory.DID_BULK_REQ) {
+            SMQPBulkRequest bulkRequest = (SMQPBulkRequest) obj;
+            for (int i = 0; i < bulkRequest.len; i++) {
+                if (connection == null)
+                    return;
+                dispatchDumpable((Dumpable) bulkRequest.dumpables[i]);
+            }
+        } else {
+            if (connection == null)
+                return;
+            dispatchDumpable(obj);
+        }
+    }
+
+    public void dumpableAvailable(Dumpable obj) {
+        try {
+            dispatchInbound(obj);
+        } catch (Exception e) {
+            if (reconnector.isDebug())
+                System.out.println(new Date() + " " + toString() + ": dumpableAvailable, exception= " + e);
+            if (closed) {
+                return;
+            }
+            if (reconnector.isEnabled()) {
+                reconnect();
+            } else
+                cancelAndNotify(e, true);
+        }
+    }
+
     public void dataAvailable(LengthCaptureDataInput in) {
         try {
             Dumpable obj = Dumpalizer.construct(in, dumpableFactory);
             if (obj == null) {
                 return;
             }
-            if (obj.getDumpId() == SMQPFactory.DID_BULK_REQ) {
-                SMQPBulkRequest bulkRequest = (SMQPBulkRequest) obj;
-                for (int i = 0; i < bulkRequest.len; i++) {
-                    if (connection == null)
-                        return;
-                    dispatchDumpable((Dumpable) bulkRequest.dumpables[i]);
-                }
-            } else {
-                if (connection == null)
-                    return;
-                dispatchDumpable(obj);
-            }
+            dispatchInbound(obj);
         } catch (Exception e) {
             if (reconnector.isDebug())
                 System.out.println(new Date() + " " + toString() + ": dataAvailable, exception= " + e);
@@ -936,6 +1132,10 @@ public class ConnectionImpl extends RequestServiceRegistry
     }
 
     public void close() throws JMSException {
+        // Outside the lock, the outbox is drained by a pool thread
+        int outboxDropped = 0;
+        if (producerOutbox != null && !closed)
+            outboxDropped = producerOutbox.drainOrDrop(null);
         lock.writeLock().lock();
         try {
             if (closed)
@@ -972,6 +1172,10 @@ public class ConnectionImpl extends RequestServiceRegistry
                 requestRegistry.close();
                 sessionList.clear();
                 tmpQueues.clear();
+                if (tmpQueuePool != null)
+                    tmpQueuePool.close();
+                if (producerOutbox != null)
+                    outboxDropped += producerOutbox.close();
                 duplicateLog.clear();
                 connectionState = DISCONNECTED;
             } catch (Exception e) {
@@ -980,7 +1184,8 @@ public class ConnectionImpl extends RequestServiceRegistry
         } finally {
             lock.writeLock().unlock();
         }
-
+        if (outboxDropped > 0)
+            throw new JMSException("Connection closed, " + outboxDropped + " messages of the producer outbox were not sent");
     }
 
     public void cancel(boolean closeReconnector) {
@@ -1005,6 +1210,10 @@ public class ConnectionImpl extends RequestServiceRegistry
                 requestRegistry.close();
             }
             tmpQueues.clear();
+            if (tmpQueuePool != null)
+                tmpQueuePool.close();
+            if (producerOutbox != null)
+                producerOutbox.close();
             duplicateLog.clear();
             connectionState = DISCONNECTED;
         } finally {
@@ -1038,7 +1247,11 @@ public class ConnectionImpl extends RequestServiceRegistry
             try {
                 if (n == 1)
                     writeObject((Dumpable) bulk[0]);
-                else {
+                else if (objectConnection != null) {
+                    // the bulk request and array are reused, so pass the elements
+                    for (int i = 0; i < n; i++)
+                        writeObject((Dumpable) bulk[i]);
+                } else {
                     bulkRequest.dumpables = bulk;
                     bulkRequest.len = n;
                     writeObject(bulkRequest);
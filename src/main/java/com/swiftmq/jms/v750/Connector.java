@@ -23,8 +23,8 @@ import com.swiftmq.jms.smqp.v750.SMQPBulkRequest;
 import com.swiftmq.jms.smqp.v750.SMQPFactory;
 import com.swiftmq.jms.v750.po.*;
 import com.swiftmq.net.client.Connection;
+import com.swiftmq.net.client.DumpableInboundHandler;
 import com.swiftmq.net.client.ExceptionHandler;
-import com.swiftmq.net.client.InboundHandler;
 import com.swiftmq.net.client.Reconnector;
 import com.swiftmq.tools.concurrent.Semaphore;
 import com.swiftmq.tools.dump.Dumpable;
@@ -43,12 +43,12 @@ import com.swiftmq.tools.util.LengthCaptureDataInput;
 
 import jakarta.jms.JMSSecurityException;
 import java.io.IOException;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHandler {
+public class Connector implements ReconnectVisitor, DumpableInboundHandler, ExceptionHandler {
     private static final int MAX_INTERNAL_RETRY_COUNT = Integer.parseInt(System.getProperty("swiftmq.reconnect.max.internal.retry.count", "10"));
+    private static final int MAX_RECREATE_BATCH_SIZE = Integer.parseInt(System.getProperty("swiftmq.reconnect.recreate.batch.size", "100"));
     DumpableFactory dumpableFactory = new com.swiftmq.jms.smqp.SMQPFactory(new SMQPFactory());
 
     PipelineQueue pipelineQueue = null;
@@ -60,10 +60,11 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
     DataStreamOutputStream outStream = null;
     boolean ok = false;
     Semaphore sem = null;
-    Request current = null;
+    LinkedList<Request> pendingRequests = new LinkedList<>();
     long requestTime = -1;
     volatile boolean recreateStarted = false;
     PORecreate currentRecreatePO = null;
+    Map<Integer, Recreatable> pendingRecreates = new HashMap<>();
     boolean closed = false;
     boolean closeInProgress = false;
     Timeout requestTimeoutTimer = null;
@@ -97,6 +98,15 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         dispatch(po);
     }
 
+    public void dumpableAvailable(Dumpable obj) {
+        if (obj == null || obj.getDumpId() == SMQPFactory.DID_KEEPALIVE_REQ)
+            return;
+        PODataAvailable po = new PODataAvailable();
+        po.setDumpable(obj);
+        if (debug) System.out.println("InboundHandler.dumpableAvailable, po=" + po);
+        dispatch(po);
+    }
+
     public void onException(IOException exception) {
         dispatch(new POException(exception));
     }
@@ -114,8 +124,28 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         TimerRegistry.Singleton().addTimerListener(RequestRegistry.SWIFTMQ_REQUEST_TIMEOUT, requestTimeoutTimer);
     }
 
+    private void writeRequests(List<Request> requests) throws IOException {
+        if (requests.size() == 1)
+            writeObject(requests.get(0));
+        else {
+            SMQPBulkRequest bulkRequest = new SMQPBulkRequest();
+            bulkRequest.dumpables = requests.toArray();
+            bulkRequest.len = requests.size();
+            writeObject(bulkRequest);
+        }
+    }
+
+    private void resetPending() {
+        pendingRequests.clear();
+        pendingRecreates.clear();
+        requestTime = -1;
+    }
+
     private void setReply(Dumpable obj) throws Exception {
-        if (requestTimeoutTimer != null) {
+        Request current = pendingRequests.poll();
+        if (current == null)
+            return;
+        if (pendingRequests.isEmpty() && requestTimeoutTimer != null) {
             TimerRegistry.Singleton().removeTimerListener(RequestRegistry.SWIFTMQ_REQUEST_TIMEOUT, requestTimeoutTimer);
             requestTimeoutTimer = null;
         }
@@ -131,25 +161,45 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
                 break;
             case SMQPFactory.DID_AUTHRESPONSE_REQ:
                 recreatableConnection.setAuthenticateResponseReply((Reply) obj);
-                dispatch(new POMetaDataRequest());
+                startRecreatorIfLoginDone();
                 break;
             case SMQPFactory.DID_GETMETADATA_REQ:
                 recreatableConnection.setMetaDataReply((Reply) obj);
-                dispatch(new POGetClientIdRequest());
+                startRecreatorIfLoginDone();
                 break;
             case SMQPFactory.DID_GETCLIENTID_REQ:
                 recreatableConnection.setGetClientIdReply((Reply) obj);
-                dispatch(new POSetClientIdRequest());
+                startRecreatorIfLoginDone();
                 break;
             case SMQPFactory.DID_SETCLIENTID_REQ:
                 recreatableConnection.setSetClientIdReply((Reply) obj);
-                new Recreator().start();
+                startRecreatorIfLoginDone();
                 break;
             default:
                 break;
         }
     }
 
+    private void startRecreatorIfLoginDone() {
+        if (pendingRequests.isEmpty())
+            new Recreator().start();
+    }
+
+    private void setRecreateReply(Reply reply) {
+        if (currentRecreatePO == null)
+            return;
+        Recreatable recreatable = pendingRecreates.remove(reply.getRequestNumber());
+        if (recreatable == null)
+            return;
+        recreatable.setRecreateReply(reply);
+        if (pendingRecreates.isEmpty()) {
+            currentRecreatePO.setSuccess(true);
+            if (currentRecreatePO.getSemaphore() != null)
+                currentRecreatePO.getSemaphore().notifySingleWaiter();
+            currentRecreatePO = null;
+        }
+    }
+
     public void visit(POReconnect po) {
         if (debug)
             System.out.println(toString() + ", visit, po=" + po + " ... [recreateStarted=" + recreateStarted + ", reconnectInProgress=" + reconnectInProgress + "]");
@@ -181,6 +231,7 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
             }
             reconnectInProgress = true;
             recreateStarted = false;
+            resetPending();
             sem = po.getSemaphore();
             recreatableConnection = po.getRecreatableConnection();
             reconnector.setDebugString(recreatableConnection.toString());
@@ -225,26 +276,17 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
                     }
                 } else
                     setReply(obj);
-                current = null;
             } else if (obj.getDumpId() == SMQPFactory.DID_BULK_REQ) {
                 SMQPBulkRequest bulkRequest = (SMQPBulkRequest) obj;
                 for (int i = 0; i < bulkRequest.len; i++) {
                     Dumpable dumpable = (Dumpable) bulkRequest.dumpables[i];
-                    if (dumpable.getDumpId() != SMQPFactory.DID_KEEPALIVE_REQ) {
-                        currentRecreatePO.getRecreatable().setRecreateReply((Reply) dumpable);
-                        currentRecreatePO.setSuccess(true);
-                        if (currentRecreatePO.getSemaphore() != null)
-                            currentRecreatePO.getSemaphore().notifySingleWaiter();
-                    }
+                    if (dumpable.getDumpId() != SMQPFactory.DID_KEEPALIVE_REQ)
+                        setRecreateReply((Reply) dumpable);
                 }
-            } else {
-                currentRecreatePO.getRecreatable().setRecreateReply((Reply) obj);
-                currentRecreatePO.setSuccess(true);
-                if (currentRecreatePO.getSemaphore() != null)
-                    currentRecreatePO.getSemaphore().notifySingleWaiter();
-            }
-            currentRecreatePO = null;
-            requestTime = -1;
+            } else
+                setRecreateReply((Reply) obj);
+            if (pendingRequests.isEmpty() && pendingRecreates.isEmpty())
+                requestTime = -1;
         } catch (Exception e) {
             if (debug)
                 System.out.println(toString() + ", visit, po=" + po + ", exception=" + e + ", recreateStarted=" + recreateStarted);
@@ -261,7 +303,7 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
             connection = null;
             reconnectInProgress = false;
             currentRecreatePO = null;
-            requestTime = -1;
+            resetPending();
             if (debug)
                 System.out.println(toString() + ", ((e instanceof JMSSecurityException) || (e instanceof InvalidVersionException))?" + ((e instanceof JMSSecurityException) || (e instanceof InvalidVersionException)));
             if ((e instanceof JMSSecurityException) || (e instanceof InvalidVersionException)) {
@@ -288,7 +330,7 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         connection = null;
         recreateStarted = false;
         reconnectInProgress = false;
-        requestTime = -1;
+        resetPending();
         if (requestTimeoutTimer != null) {
             TimerRegistry.Singleton().removeTimerListener(RequestRegistry.SWIFTMQ_REQUEST_TIMEOUT, requestTimeoutTimer);
             requestTimeoutTimer = null;
@@ -325,7 +367,7 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
             reconnector.invalidateConnection();
             connection = null;
             reconnectInProgress = false;
-            requestTime = -1;
+            resetPending();
             if (requestTimeoutTimer != null) {
                 TimerRegistry.Singleton().removeTimerListener(RequestRegistry.SWIFTMQ_REQUEST_TIMEOUT, requestTimeoutTimer);
                 requestTimeoutTimer = null;
@@ -339,7 +381,9 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
         if (closed)
             return;
-        current = recreatableConnection.getVersionRequest();
+        // The version request selects the SMQP protocol version on the router, so it can't be bulked
+        Request current = recreatableConnection.getVersionRequest();
+        pendingRequests.add(current);
         try {
             writeObject(current);
         } catch (IOException e) {
@@ -356,7 +400,8 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
         if (closed)
             return;
-        current = recreatableConnection.getAuthenticateRequest();
+        Request current = recreatableConnection.getAuthenticateRequest();
+        pendingRequests.add(current);
         try {
             writeObject(current);
         } catch (IOException e) {
@@ -372,26 +417,20 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
         if (closed)
             return;
-        current = recreatableConnection.getAuthenticateResponse();
-        try {
-            writeObject(current);
-        } catch (IOException e) {
-            if (debug) System.out.println(toString() + ", visit, po=" + po + ", writeObject=" + e);
-            reconnector.invalidateConnection();
-            connection = null;
-            reconnectInProgress = false;
-            dispatch(new POReconnect(sem, recreatableConnection, true));
-        }
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " done");
-    }
-
-    public void visit(POMetaDataRequest po) {
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
-        if (closed)
-            return;
-        current = recreatableConnection.getMetaDataRequest();
+        // The remaining login requests don't depend on each other's replies and are
+        // sent as a single bulk behind the auth response. Replies arrive in order.
+        List<Request> requests = new ArrayList<>();
+        requests.add(recreatableConnection.getAuthenticateResponse());
+        requests.add(recreatableConnection.getMetaDataRequest());
+        Request request = recreatableConnection.getGetClientIdRequest();
+        if (request != null)
+            requests.add(request);
+        request = recreatableConnection.getSetClientIdRequest();
+        if (request != null)
+            requests.add(request);
+        pendingRequests.addAll(requests);
         try {
-            writeObject(current);
+            writeRequests(requests);
         } catch (IOException e) {
             if (debug) System.out.println(toString() + ", visit, po=" + po + ", writeObject=" + e);
             reconnector.invalidateConnection();
@@ -402,57 +441,26 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
         if (debug) System.out.println(toString() + ", visit, po=" + po + " done");
     }
 
-    public void visit(POGetClientIdRequest po) {
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
-        if (closed)
-            return;
-        current = recreatableConnection.getGetClientIdRequest();
-        if (current != null) {
-            try {
-                writeObject(current);
-            } catch (IOException e) {
-                if (debug) System.out.println(toString() + ", visit, po=" + po + ", writeObject=" + e);
-                reconnector.invalidateConnection();
-                connection = null;
-                reconnectInProgress = false;
-                dispatch(new POReconnect(sem, recreatableConnection, true));
-            }
-        } else
-            new Recreator().start();
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " done");
-    }
-
-    public void visit(POSetClientIdRequest po) {
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
-        if (closed)
-            return;
-        current = recreatableConnection.getSetClientIdRequest();
-        if (current != null) {
-            try {
-                writeObject(current);
-            } catch (IOException e) {
-                if (debug) System.out.println(toString() + ", visit, po=" + po + ", writeObject=" + e);
-                reconnector.invalidateConnection();
-                connection = null;
-                reconnectInProgress = false;
-                dispatch(new POReconnect(sem, recreatableConnection, true));
-            }
-        } else
-            new Recreator().start();
-        if (debug) System.out.println(toString() + ", visit, po=" + po + " done");
-    }
-
     public void visit(PORecreate po) {
         if (debug) System.out.println(toString() + ", visit, po=" + po + " ...");
         if (closed)
             return;
         currentRecreatePO = po;
+        pendingRecreates.clear();
+        List<Recreatable> recreatables = po.getRecreatables();
+        List<Request> requests = po.getRequests();
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).setRequestNumber(i);
+            pendingRecreates.put(i, recreatables.get(i));
+        }
         try {
-            writeObject(po.getRequest());
+            writeRequests(requests);
         } catch (IOException e) {
             if (debug) System.out.println(toString() + ", visit, po=" + po + ", writeObject=" + e);
             po.setSuccess(false);
             po.getSemaphore().notifySingleWaiter();
+            currentRecreatePO = null;
+            resetPending();
             reconnector.invalidateConnection();
             connection = null;
             reconnectInProgress = false;
@@ -531,23 +539,55 @@ public class Connector implements ReconnectVisitor, InboundHandler, ExceptionHan
             if (debug) System.out.println(Connector.this.toString() + "/Recreator, created");
         }
 
-        private boolean recreate(Recreatable recreatable) {
-            if (closed)
-                return false;
-            Request request = recreatable.getRecreateRequest();
-            if (request != null) {
+        private void collect(List list, List<Recreatable> batch, List<Request> requests) {
+            if (list == null)
+                return;
+            for (int i = 0; i < list.size(); i++) {
+                Recreatable recreatable = (Recreatable) list.get(i);
+                Request request = recreatable.getRecreateRequest();
+                if (request != null) {
+                    batch.add(recreatable);
+                    requests.add(request);
+                } else
+                    collect(recreatable.getRecreatables(), batch, requests);
+            }
+        }
+
+        private boolean recreate(List<Recreatable> batch, List<Request> requests) {
+            for (int i = 0; i < requests.size(); i += MAX_RECREATE_BATCH_SIZE) {
+                if (closed)
+                    return false;
+                int end = Math.min(i + MAX_RECREATE_BATCH_SIZE, requests.size());
                 Semaphore sem = new Semaphore();
-                PORecreate po = new PORecreate(sem, recreatable, request);
+                PORecreate po = new PORecreate(sem, new ArrayList<>(batch.subList(i, end)), new ArrayList<>(requests.subList(i, end)));
                 dispatch(po);
                 sem.waitHere();
                 if (!po.isSuccess())
                     return false;
             }
-            List list = recreatable.getRecreatables();
-            if (list != null && list.size() > 0) {
-                for (int i = 0; i < list.size(); i++)
-                    if (!recreate((Recreatable) list.get(i)))
-                        return false;
+            return true;
+        }
+
+        // Recreates the object tree level by level. A child's recreate request may depend on
+        // its parent's reply (e.g. the session dispatch id) but never on a sibling, so each
+        // level goes out as a bulk and replies are matched by request number.
+        private boolean recreate(Recreatable root) {
+            List level = Collections.singletonList(root);
+            while (level.size() > 0) {
+                if (closed)
+                    return false;
+                List<Recreatable> batch = new ArrayList<>();
+                List<Request> requests = new ArrayList<>();
+                collect(level, batch, requests);
+                if (!recreate(batch, requests))
+                    return false;
+                List next = new ArrayList();
+                for (int i = 0; i < batch.size(); i++) {
+                    List list = batch.get(i).getRecreatables();
+                    if (list != null)
+                        next.addAll(list);
+                }
+                level = next;
             }
             return true;
         }
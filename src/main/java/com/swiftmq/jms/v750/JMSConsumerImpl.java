@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.jms.ExceptionConverter;
+
+import jakarta.jms.*;
+
+public class JMSConsumerImpl implements JMSConsumer {
+    final JMSContextImpl context;
+    final MessageConsumer consumer;
+
+    JMSConsumerImpl(JMSContextImpl context, MessageConsumer consumer) {
+        this.context = context;
+        this.consumer = consumer;
+    }
+
+    public String getMessageSelector() {
+        try {
+            return consumer.getMessageSelector();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public MessageListener getMessageListener() throws JMSRuntimeException {
+        try {
+            return consumer.getMessageListener();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void setMessageListener(MessageListener listener) throws JMSRuntimeException {
+        try {
+            if (listener == null)
+                consumer.setMessageListener(null);
+            else
+                consumer.setMessageListener(message -> {
+                    context.setLastMessage(message);
+                    listener.onMessage(message);
+                });
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Message receive() {
+        try {
+            Message message = consumer.receive();
+            context.setLastMessage(message);
+            return message;
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Message receive(long timeout) {
+        try {
+            Message message = consumer.receive(timeout);
+            context.setLastMessage(message);
+            return message;
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Message receiveNoWait() {
+        try {
+            Message message = consumer.receiveNoWait();
+            context.setLastMessage(message);
+            return message;
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void close() {
+        try {
+            consumer.close();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        } finally {
+            context.removeConsumer(this);
+        }
+    }
+
+    private <T> T getBody(Message message, Class<T> c) {
+        if (message == null)
+            return null;
+        try {
+            return message.getBody(c);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public <T> T receiveBody(Class<T> c) {
+        return getBody(receive(), c);
+    }
+
+    public <T> T receiveBody(Class<T> c, long timeout) {
+        return getBody(receive(timeout), c);
+    }
+
+    public <T> T receiveBodyNoWait(Class<T> c) {
+        return getBody(receiveNoWait(), c);
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.jms.ExceptionConverter;
+
+import jakarta.jms.*;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JMSContext on top of a SharedContextConnection. The session is checked out of the
+ * shared connection's pool on first use and checked in again on close.
+ * <p>
+ * start and stop only affect the delivery to the session of this context, so contexts
+ * sharing a connection don't interfere. setClientID switches the context to a dedicated
+ * connection, which is shared only with contexts created from this one.
+ */
+public class JMSContextImpl implements JMSContext {
+    final ConnectionFactoryImpl factory;
+    SharedContextConnection shared;
+    ConnectionImpl connection;
+    final int sessionMode;
+    SessionImpl session = null;
+    MessageProducerImpl producer = null;
+    volatile boolean autoStart = true;
+    volatile boolean started = false;
+    volatile boolean closed = false;
+    ExceptionListener exceptionListener = null;
+    final List<JMSConsumerImpl> consumers = new CopyOnWriteArrayList<>();
+    volatile Message lastMessage = null;
+    final ReentrantLock lock = new ReentrantLock();
+
+    JMSContextImpl(ConnectionFactoryImpl factory, SharedContextConnection shared, int sessionMode) {
+        this.factory = factory;
+        this.shared = shared;
+        this.connection = shared != null ? shared.connection : null;
+        this.sessionMode = sessionMode;
+    }
+
+    // For subclasses with a dedicated connection
+    protected JMSContextImpl(ConnectionImpl connection, SessionImpl session, int sessionMode) {
+        this.factory = null;
+        this.shared = null;
+        this.connection = connection;
+        this.session = session;
+        this.sessionMode = sessionMode;
+    }
+
+    static void verifySessionMode(int sessionMode) {
+        if (sessionMode != JMSContext.AUTO_ACKNOWLEDGE && sessionMode != JMSContext.CLIENT_ACKNOWLEDGE &&
+                sessionMode != JMSContext.DUPS_OK_ACKNOWLEDGE && sessionMode != JMSContext.SESSION_TRANSACTED)
+            throw new JMSRuntimeException("Invalid session mode: " + sessionMode);
+    }
+
+    protected void verifyState() {
+        if (closed)
+            throw new IllegalStateRuntimeException("JMSContext is closed");
+    }
+
+    SessionImpl getSession() {
+        lock.lock();
+        try {
+            verifyState();
+            if (session == null) {
+                session = shared.checkOut(sessionMode);
+                session.setHeld(!started);
+            }
+            return session;
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    MessageProducerImpl getProducer() throws JMSException {
+        lock.lock();
+        try {
+            if (producer == null)
+                producer = (MessageProducerImpl) getSession().createProducer(null);
+            return producer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setLastMessage(Message message) {
+        if (message != null)
+            lastMessage = message;
+    }
+
+    void removeConsumer(JMSConsumerImpl consumer) {
+        consumers.remove(consumer);
+    }
+
+    private JMSConsumer addConsumer(MessageConsumer consumer) throws JMSException {
+        JMSConsumerImpl jmsConsumer = new JMSConsumerImpl(this, consumer);
+        consumers.add(jmsConsumer);
+        if (autoStart)
+            start();
+        return jmsConsumer;
+    }
+
+    public JMSContext createContext(int sessionMode) {
+        verifyState();
+        verifySessionMode(sessionMode);
+        return new JMSContextImpl(factory, factory.acquireContextConnection(shared), sessionMode);
+    }
+
+    public JMSProducer createProducer() {
+        verifyState();
+        return new JMSProducerImpl(this);
+    }
+
+    public String getClientID() {
+        verifyState();
+        try {
+            return connection.getClientID();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void setClientID(String clientID) {
+        verifyState();
+        lock.lock();
+        try {
+            if (clientID != null && clientID.equals(connection.getClientID()))
+                return;
+            if (shared == null || shared.dedicated) {
+                connection.setClientID(clientID);
+                return;
+            }
+            if (session != null || started || !consumers.isEmpty())
+                throw new IllegalStateRuntimeException("Client ID must be set before the JMSContext is used");
+            SharedContextConnection dedicated = factory.createDedicatedContextConnection(shared, clientID);
+            if (exceptionListener != null) {
+                shared.removeExceptionListener(exceptionListener);
+                dedicated.addExceptionListener(exceptionListener);
+            }
+            factory.releaseContextConnection(shared);
+            shared = dedicated;
+            connection = dedicated.connection;
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ConnectionMetaData getMetaData() {
+        verifyState();
+        try {
+            return connection.getMetaData();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public ExceptionListener getExceptionListener() {
+        verifyState();
+        return exceptionListener;
+    }
+
+    public void setExceptionListener(ExceptionListener listener) {
+        verifyState();
+        if (shared == null) {
+            try {
+                connection.setExceptionListener(listener);
+            } catch (JMSException e) {
+                throw ExceptionConverter.convertRuntime(e);
+            }
+        } else {
+            if (exceptionListener != null)
+                shared.removeExceptionListener(exceptionListener);
+            if (listener != null)
+                shared.addExceptionListener(listener);
+        }
+        exceptionListener = listener;
+    }
+
+    public void start() {
+        verifyState();
+        try {
+            started = true;
+            connection.start();
+            if (shared != null && session != null)
+                session.setHeld(false);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void stop() {
+        verifyState();
+        try {
+            started = false;
+            if (shared == null)
+                connection.stop();
+            else if (session != null)
+                session.setHeld(true);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void setAutoStart(boolean autoStart) {
+        verifyState();
+        this.autoStart = autoStart;
+    }
+
+    public boolean getAutoStart() {
+        verifyState();
+        return autoStart;
+    }
+
+    protected void closeResources() throws JMSException {
+        for (JMSConsumerImpl consumer : consumers)
+            consumer.close();
+        consumers.clear();
+        if (producer != null) {
+            producer.close();
+            producer = null;
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                closeResources();
+            } catch (JMSException e) {
+                throw ExceptionConverter.convertRuntime(e);
+            } finally {
+                release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void release() {
+        if (session != null) {
+            shared.checkIn(session, sessionMode);
+            session = null;
+        }
+        if (exceptionListener != null)
+            shared.removeExceptionListener(exceptionListener);
+        factory.releaseContextConnection(shared);
+    }
+
+    public BytesMessage createBytesMessage() {
+        try {
+            return getSession().createBytesMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public MapMessage createMapMessage() {
+        try {
+            return getSession().createMapMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Message createMessage() {
+        try {
+            return getSession().createMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public ObjectMessage createObjectMessage() {
+        try {
+            return getSession().createObjectMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public ObjectMessage createObjectMessage(Serializable object) {
+        try {
+            return getSession().createObjectMessage(object);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public StreamMessage createStreamMessage() {
+        try {
+            return getSession().createStreamMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public TextMessage createTextMessage() {
+        try {
+            return getSession().createTextMessage();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public TextMessage createTextMessage(String text) {
+        try {
+            return getSession().createTextMessage(text);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public boolean getTransacted() {
+        verifyState();
+        return sessionMode == JMSContext.SESSION_TRANSACTED;
+    }
+
+    public int getSessionMode() {
+        verifyState();
+        return sessionMode;
+    }
+
+    public void commit() {
+        try {
+            getSession().commit();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void rollback() {
+        try {
+            getSession().rollback();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void recover() {
+        try {
+            getSession().recover();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public JMSConsumer createConsumer(Destination destination) {
+        return createConsumer(destination, null, false);
+    }
+
+    public JMSConsumer createConsumer(Destination destination, String messageSelector) {
+        return createConsumer(destination, messageSelector, false);
+    }
+
+    public JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) {
+        try {
+            return addConsumer(getSession().createConsumer(destination, messageSelector, noLocal));
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Queue createQueue(String queueName) {
+        try {
+            return getSession().createQueue(queueName);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Topic createTopic(String topicName) {
+        try {
+            return getSession().createTopic(topicName);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public JMSConsumer createDurableConsumer(Topic topic, String name) {
+        return createDurableConsumer(topic, name, null, false);
+    }
+
+    public JMSConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal) {
+        try {
+            return addConsumer(getSession().createDurableSubscriber(topic, name, messageSelector, noLocal));
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public JMSConsumer createSharedDurableConsumer(Topic topic, String name) {
+        return createSharedDurableConsumer(topic, name, null);
+    }
+
+    public JMSConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector) {
+        try {
+            return addConsumer(getSession().createSharedDurableConsumer(topic, name, messageSelector));
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) {
+        return createSharedConsumer(topic, sharedSubscriptionName, null);
+    }
+
+    public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, String messageSelector) {
+        try {
+            return addConsumer(getSession().createSharedConsumer(topic, sharedSubscriptionName, messageSelector));
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public QueueBrowser createBrowser(Queue queue) {
+        return createBrowser(queue, null);
+    }
+
+    public QueueBrowser createBrowser(Queue queue, String messageSelector) {
+        try {
+            return getSession().createBrowser(queue, messageSelector);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public TemporaryQueue createTemporaryQueue() {
+        try {
+            return getSession().createTemporaryQueue();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public TemporaryTopic createTemporaryTopic() {
+        try {
+            return getSession().createTemporaryTopic();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void unsubscribe(String name) {
+        try {
+            getSession().unsubscribe(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public void acknowledge() {
+        verifyState();
+        Message message = lastMessage;
+        if (sessionMode != JMSContext.CLIENT_ACKNOWLEDGE || message == null)
+            return;
+        try {
+            message.acknowledge();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public String toString() {
+        return "/JMSContextImpl, sessionMode=" + sessionMode;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.jms.ExceptionConverter;
+import com.swiftmq.jms.MessageImpl;
+
+import jakarta.jms.*;
+
+import java.io.Serializable;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JMSProducer which sends through the unidentified MessageProducer of its JMSContext.
+ * Message properties are kept in a MessageImpl to get the JMS conversion rules.
+ */
+public class JMSProducerImpl implements JMSProducer {
+    final JMSContextImpl context;
+    final MessageImpl properties = new MessageImpl();
+    boolean disableMessageID;
+    boolean disableMessageTimestamp;
+    int deliveryMode;
+    int priority;
+    long timeToLive;
+    long deliveryDelay = 0;
+    CompletionListener completionListener = null;
+    String correlationID = null;
+    byte[] correlationIDAsBytes = null;
+    String type = null;
+    Destination replyTo = null;
+
+    JMSProducerImpl(JMSContextImpl context) {
+        this.context = context;
+        ConnectionImpl connection = context.connection;
+        disableMessageID = !connection.isJmsMessageIdEnabled();
+        disableMessageTimestamp = !connection.isJmsMessageTimestampEnabled();
+        deliveryMode = connection.getJmsDeliveryMode();
+        priority = connection.getJmsPriority();
+        timeToLive = connection.getJmsTTL();
+    }
+
+    public JMSProducer send(Destination destination, Message message) {
+        if (destination == null)
+            throw new InvalidDestinationRuntimeException("Destination is null");
+        if (message == null)
+            throw new MessageFormatRuntimeException("Message is null");
+        try {
+            for (Enumeration names = properties.getPropertyNames(); names.hasMoreElements(); ) {
+                String name = (String) names.nextElement();
+                message.setObjectProperty(name, properties.getObjectProperty(name));
+            }
+            if (correlationIDAsBytes != null)
+                message.setJMSCorrelationIDAsBytes(correlationIDAsBytes);
+            else if (correlationID != null)
+                message.setJMSCorrelationID(correlationID);
+            if (type != null)
+                message.setJMSType(type);
+            if (replyTo != null)
+                message.setJMSReplyTo(replyTo);
+            MessageProducerImpl producer = context.getProducer();
+            producer.setDisableMessageID(disableMessageID);
+            producer.setDisableMessageTimestamp(disableMessageTimestamp);
+            producer.setDeliveryDelay(deliveryDelay);
+            if (completionListener != null)
+                producer.send(destination, message, deliveryMode, priority, timeToLive, completionListener);
+            else
+                producer.send(destination, message, deliveryMode, priority, timeToLive);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+        return this;
+    }
+
+    public JMSProducer send(Destination destination, String body) {
+        return send(destination, context.createTextMessage(body));
+    }
+
+    public JMSProducer send(Destination destination, Map<String, Object> body) {
+        MapMessage message = context.createMapMessage();
+        if (body != null) {
+            try {
+                for (Map.Entry<String, Object> entry : body.entrySet())
+                    message.setObject(entry.getKey(), entry.getValue());
+            } catch (JMSException e) {
+                throw ExceptionConverter.convertRuntime(e);
+            }
+        }
+        return send(destination, message);
+    }
+
+    public JMSProducer send(Destination destination, byte[] body) {
+        BytesMessage message = context.createBytesMessage();
+        if (body != null) {
+            try {
+                message.writeBytes(body);
+            } catch (JMSException e) {
+                throw ExceptionConverter.convertRuntime(e);
+            }
+        }
+        return send(destination, message);
+    }
+
+    public JMSProducer send(Destination destination, Serializable body) {
+        return send(destination, context.createObjectMessage(body));
+    }
+
+    public JMSProducer setDisableMessageID(boolean value) {
+        disableMessageID = value;
+        return this;
+    }
+
+    public boolean getDisableMessageID() {
+        return disableMessageID;
+    }
+
+    public JMSProducer setDisableMessageTimestamp(boolean value) {
+        disableMessageTimestamp = value;
+        return this;
+    }
+
+    public boolean getDisableMessageTimestamp() {
+        return disableMessageTimestamp;
+    }
+
+    public JMSProducer setDeliveryMode(int deliveryMode) {
+        if (deliveryMode != DeliveryMode.PERSISTENT && deliveryMode != DeliveryMode.NON_PERSISTENT)
+            throw new JMSRuntimeException("Invalid delivery mode: " + deliveryMode);
+        this.deliveryMode = deliveryMode;
+        return this;
+    }
+
+    public int getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    public JMSProducer setPriority(int priority) {
+        if (priority < 0 || priority > 9)
+            throw new JMSRuntimeException("Invalid priority: " + priority);
+        this.priority = priority;
+        return this;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public JMSProducer setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+        return this;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public JMSProducer setDeliveryDelay(long deliveryDelay) {
+        this.deliveryDelay = deliveryDelay;
+        return this;
+    }
+
+    public long getDeliveryDelay() {
+        return deliveryDelay;
+    }
+
+    public JMSProducer setAsync(CompletionListener completionListener) {
+        this.completionListener = completionListener;
+        return this;
+    }
+
+    public CompletionListener getAsync() {
+        return completionListener;
+    }
+
+    public JMSProducer setProperty(String name, boolean value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, byte value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, short value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, int value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, long value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, float value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, double value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, String value) {
+        return setProperty(name, (Object) value);
+    }
+
+    public JMSProducer setProperty(String name, Object value) {
+        if (name == null || name.length() == 0)
+            throw new IllegalArgumentException("Property name must not be null or empty");
+        try {
+            properties.setObjectProperty(name, value);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+        return this;
+    }
+
+    public JMSProducer clearProperties() {
+        try {
+            properties.clearProperties();
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+        return this;
+    }
+
+    public boolean propertyExists(String name) {
+        try {
+            return properties.propertyExists(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public boolean getBooleanProperty(String name) {
+        try {
+            return properties.getBooleanProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public byte getByteProperty(String name) {
+        try {
+            return properties.getByteProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public short getShortProperty(String name) {
+        try {
+            return properties.getShortProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public int getIntProperty(String name) {
+        try {
+            return properties.getIntProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public long getLongProperty(String name) {
+        try {
+            return properties.getLongProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public float getFloatProperty(String name) {
+        try {
+            return properties.getFloatProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public double getDoubleProperty(String name) {
+        try {
+            return properties.getDoubleProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public String getStringProperty(String name) {
+        try {
+            return properties.getStringProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Object getObjectProperty(String name) {
+        try {
+            return properties.getObjectProperty(name);
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+    }
+
+    public Set<String> getPropertyNames() {
+        Set<String> names = new HashSet<>();
+        try {
+            for (Enumeration e = properties.getPropertyNames(); e.hasMoreElements(); )
+                names.add((String) e.nextElement());
+        } catch (JMSException e) {
+            throw ExceptionConverter.convertRuntime(e);
+        }
+        return names;
+    }
+
+    public JMSProducer setJMSCorrelationIDAsBytes(byte[] correlationID) {
+        correlationIDAsBytes = correlationID;
+        this.correlationID = null;
+        return this;
+    }
+
+    public byte[] getJMSCorrelationIDAsBytes() {
+        return correlationIDAsBytes;
+    }
+
+    public JMSProducer setJMSCorrelationID(String correlationID) {
+        this.correlationID = correlationID;
+        correlationIDAsBytes = null;
+        return this;
+    }
+
+    public String getJMSCorrelationID() {
+        return correlationID;
+    }
+
+    public JMSProducer setJMSType(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public String getJMSType() {
+        return type;
+    }
+
+    public JMSProducer setJMSReplyTo(Destination replyTo) {
+        this.replyTo = replyTo;
+        return this;
+    }
+
+    public Destination getJMSReplyTo() {
+        return replyTo;
+    }
+}
@@ -27,6 +27,8 @@ import com.swiftmq.tools.collection.RingBuffer;
 import com.swiftmq.tools.collection.RingBufferThreadsafe;
 import com.swiftmq.tools.concurrent.Semaphore;
 import com.swiftmq.tools.requestreply.*;
+import com.swiftmq.tools.timer.TimerListener;
+import com.swiftmq.tools.timer.TimerRegistry;
 import com.swiftmq.tools.util.IdGenerator;
 import com.swiftmq.tools.util.UninterruptableWaiter;
 import jakarta.jms.IllegalStateException;
@@ -39,6 +41,9 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsumer, Recreatable, RequestRetryValidator {
+    static final boolean PRIORITY_CACHE = Boolean.valueOf(System.getProperty("swiftmq.jms.consumer.cache.priority", "true")).booleanValue();
+    static final int DELIVERY_REPORT_BATCH_SIZE = Integer.parseInt(System.getProperty("swiftmq.jms.consumer.deliveryreport.batchsize", "100"));
+    static final long DELIVERY_REPORT_WINDOW = Long.parseLong(System.getProperty("swiftmq.jms.consumer.deliveryreport.window", "10"));
     final String uniqueConsumerId = IdGenerator.getInstance().nextId('/');
     final AtomicBoolean closed = new AtomicBoolean(false);
     final AtomicInteger consumerId = new AtomicInteger();
@@ -47,6 +52,7 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
     RequestRegistry requestRegistry = null;
     String messageSelector = null;
     MessageListener messageListener = null;
+    volatile boolean directDispatch = false;
     SessionImpl mySession = null;
     int serverQueueConsumerId = -1;
     boolean useThreadContextCL = false;
@@ -60,9 +66,14 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
     final AtomicBoolean fillCachePending = new AtomicBoolean(false);
     final AtomicBoolean receiveNoWaitFirstCall = new AtomicBoolean(true);
     final AtomicBoolean consumerStarted = new AtomicBoolean(false);
+    String sharedSubscriptionQueue = null;
     final Lock lock = new ReentrantLock();
     final Lock fillCacheLock = new ReentrantLock();
     final UninterruptableWaiter waiter = new UninterruptableWaiter(lock);
+    final Lock reportLock = new ReentrantLock();
+    final TimerListener reportTimer = evt -> flushDeliveryReports();
+    Request[] pendingReports = null;
+    int nPendingReports = 0;
 
     public MessageConsumerImpl(boolean transacted, int acknowledgeMode, RequestRegistry requestRegistry,
                                String messageSelector, SessionImpl session) {
@@ -73,7 +84,8 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
         this.mySession = session;
         useThreadContextCL = mySession.getMyConnection().isUseThreadContextCL();
         reportDelivered.set(transacted || acknowledgeMode == Session.CLIENT_ACKNOWLEDGE);
-        messageCache = new RingBufferThreadsafe(mySession.getMyConnection().getSmqpConsumerCacheSize());
+        int cacheSize = mySession.getMyConnection().getSmqpConsumerCacheSize();
+        messageCache = PRIORITY_CACHE ? new PriorityMessageCache(cacheSize) : new RingBufferThreadsafe(cacheSize);
     }
 
     public Request getRecreateRequest() {
@@ -228,6 +240,13 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
             mySession.triggerInvocation();
     }
 
+    public void setDirectDispatch(boolean directDispatch) throws JMSException {
+        verifyState();
+        if (directDispatch && (mySession.transacted || mySession.acknowledgeMode == Session.CLIENT_ACKNOWLEDGE))
+            throw new IllegalStateException("Direct dispatch requires a non-transacted session with AUTO_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE");
+        this.directDispatch = directDispatch;
+    }
+
     private void invokeMessageListener() {
         lock.lock();
         try {
@@ -298,11 +317,62 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
 
     }
 
+    // Delivery reports are collected and written as one bulk request when the batch is full,
+    // the window has elapsed, or before any request that depends on the delivery count
     protected void reportDelivered(Message message, boolean duplicate) {
         try {
             MessageIndex messageIndex = ((MessageImpl) message).getMessageIndex();
-            requestRegistry.request(new MessageDeliveredRequest(this, mySession.dispatchId, serverQueueConsumerId, messageIndex, duplicate));
+            MessageDeliveredRequest request = new MessageDeliveredRequest(this, mySession.dispatchId, serverQueueConsumerId, messageIndex, duplicate);
+            if (DELIVERY_REPORT_BATCH_SIZE <= 1) {
+                requestRegistry.request(request);
+                return;
+            }
+            boolean first = false;
+            reportLock.lock();
+            try {
+                if (pendingReports == null)
+                    pendingReports = new Request[DELIVERY_REPORT_BATCH_SIZE];
+                pendingReports[nPendingReports++] = request;
+                if (nPendingReports == pendingReports.length)
+                    sendDeliveryReports();
+                else
+                    first = nPendingReports == 1;
+            } finally {
+                reportLock.unlock();
+            }
+            if (first)
+                TimerRegistry.Singleton().addInstantTimerListener(DELIVERY_REPORT_WINDOW, reportTimer);
+        } catch (Exception e) {
+        }
+    }
+
+    void flushDeliveryReports() {
+        reportLock.lock();
+        try {
+            if (nPendingReports > 0)
+                sendDeliveryReports();
         } catch (Exception e) {
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    private void sendDeliveryReports() {
+        try {
+            mySession.myConnection.performRequests(pendingReports, nPendingReports);
+        } finally {
+            clearDeliveryReports();
+        }
+    }
+
+    void clearDeliveryReports() {
+        reportLock.lock();
+        try {
+            for (int i = 0; i < nPendingReports; i++)
+                pendingReports[i] = null;
+            nPendingReports = 0;
+        } finally {
+            reportLock.unlock();
         }
     }
 
@@ -318,6 +388,7 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
         if (isClosed())
             throw new jakarta.jms.IllegalStateException("Connection is closed");
 
+        flushDeliveryReports();
         Reply reply = null;
         boolean cancelled = false;
         try {
@@ -459,6 +530,7 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
         }
 
         waiter.signal();
+        flushDeliveryReports();
 
         Reply reply = null;
 
@@ -473,6 +545,8 @@ public class MessageConsumerImpl implements MessageConsumer, SwiftMQMessageConsu
             throw ExceptionConverter.convert(reply.getException());
         }
         mySession.removeMessageConsumerImpl(this);
+        if (sharedSubscriptionQueue != null)
+            mySession.myConnection.sharedSubscriptions.removeConsumer(sharedSubscriptionQueue);
     }
 
     public void close() throws JMSException {
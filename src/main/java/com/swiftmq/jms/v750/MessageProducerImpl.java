@@ -31,8 +31,10 @@ import jakarta.jms.*;
 import jakarta.jms.IllegalStateException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
-public class MessageProducerImpl implements MessageProducerExtended, RequestRetryValidator {
+public class MessageProducerImpl implements MessageProducerExtended, SwiftMQMessageProducer, RequestRetryValidator {
     private static final boolean ASYNC_SEND = Boolean.valueOf(System.getProperty("swiftmq.jms.persistent.asyncsend", "false")).booleanValue();
     public volatile int producerId = -1;
     boolean closed = false;
@@ -185,10 +187,12 @@ public class MessageProducerImpl implements MessageProducerExtended, RequestRetr
 
         if (transacted) {
             mySession.storeTransactedMessage(this, msg);
+        } else if (storeInOutbox(producerId, msg)) {
+            // sent after reconnect
         } else {
             nSend++;
             ProduceMessageReply reply = null;
-            boolean replyRequired = nSend == replyThreshold || msg.getJMSDeliveryMode() == DeliveryMode.PERSISTENT && !ASYNC_SEND;
+            boolean replyRequired = isReplyIntervalReached() || msg.getJMSDeliveryMode() == DeliveryMode.PERSISTENT && !ASYNC_SEND;
             try {
                 ProduceMessageRequest request = null;
                 if (!replyRequired) {
@@ -222,6 +226,90 @@ public class MessageProducerImpl implements MessageProducerExtended, RequestRetr
         msg.reset();
     }
 
+    // Within a directly dispatched onMessage the reply couldn't be read, so the interval restarts without one
+    private boolean isReplyIntervalReached() {
+        if (nSend != replyThreshold)
+            return false;
+        if (requestRegistry.isDirectDispatchThread()) {
+            nSend = 0;
+            return false;
+        }
+        return true;
+    }
+
+    // Persistent sends are pipelined: all requests are written first, then the replies are awaited
+    void processSend(int producerId, List<MessageImpl> msgs) throws JMSException {
+        ProducerOutbox outbox = mySession.myConnection.producerOutbox;
+        if (mySession.getTransacted() || outbox != null && outbox.isActive()) {
+            for (MessageImpl msg : msgs)
+                processSend(producerId, msg);
+            return;
+        }
+        List<ProduceMessageRequest> pending = new ArrayList<>();
+        JMSException exception = null;
+        try {
+            for (MessageImpl msg : msgs) {
+                nSend++;
+                boolean replyRequired = isReplyIntervalReached() || msg.getJMSDeliveryMode() == DeliveryMode.PERSISTENT && !ASYNC_SEND;
+                ProduceMessageRequest request = null;
+                if (!replyRequired) {
+                    request = new ProduceMessageRequest(this, mySession.dispatchId, producerId, null, getBytes(msg));
+                    request.setReplyRequired(false);
+                    requestRegistry.request(request);
+                } else {
+                    request = new ProduceMessageRequest(this, mySession.dispatchId, producerId, msg, null);
+                    request.setReplyRequired(true);
+                    boolean sent = requestRegistry.requestAsync(request);
+                    pending.add(request);
+                    nSend = 0;
+                    // rejected without being sent, don't send the rest of the batch
+                    if (!sent)
+                        break;
+                }
+            }
+        } catch (Exception e) {
+            exception = ExceptionConverter.convert(e);
+        }
+        long delay = 0;
+        for (ProduceMessageRequest request : pending) {
+            ProduceMessageReply reply = (ProduceMessageReply) requestRegistry.awaitReply(request);
+            if (exception != null)
+                continue;
+            if (reply == null)
+                exception = new JMSException("Request was cancelled (reply == null)");
+            else if (!reply.isOk())
+                exception = ExceptionConverter.convert(reply.getException());
+            else
+                delay = Math.max(delay, reply.getDelay());
+        }
+        for (MessageImpl msg : msgs)
+            msg.reset();
+        if (exception != null)
+            throw exception;
+        currentDelay = delay;
+        if (currentDelay > 0) {
+            try {
+                Thread.sleep(currentDelay);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private boolean storeInOutbox(int producerId, MessageImpl msg) throws JMSException {
+        ProducerOutbox outbox = mySession.myConnection.producerOutbox;
+        if (outbox == null || !outbox.isActive())
+            return false;
+        // Temp destinations might be assigned to another app after failover, see validate
+        Destination dest = msg.getJMSDestination();
+        if (dest instanceof TemporaryQueue || dest instanceof TemporaryTopic)
+            return false;
+        try {
+            return outbox.offer(this, producerId != -1, getBytes(msg));
+        } catch (IOException e) {
+            throw ExceptionConverter.convert(e);
+        }
+    }
+
     private byte[] getBytes(MessageImpl msg) throws IOException {
         DataByteArrayOutputStream dbos = new DataByteArrayOutputStream(2048);
         byte[] b;
@@ -330,24 +418,69 @@ public class MessageProducerImpl implements MessageProducerExtended, RequestRetr
         processSend(-1, msg);
     }
 
-    @Override
-    public void send(Message message, CompletionListener completionListener) throws JMSException {
+    public void send(List<? extends Message> messages) throws JMSException {
+        verifyState();
+
+        if (this.destImpl == null)
+            throw new UnsupportedOperationException("Cannot send unidentified on an unidentified MessageProducer!");
 
+        List<MessageImpl> msgs = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Message msg = initMessageForSend(message);
+            msg.setJMSDestination(destImpl);
+            // TCK: Foreign messages
+            if (msg != message)
+                message.setJMSDestination(destImpl);
+            if (isTopicDestination() && clientId != null)
+                msg.setStringProperty(MessageImpl.PROP_CLIENT_ID, clientId);
+            msgs.add((MessageImpl) msg);
+        }
+        processSend(producerId, msgs);
     }
 
-    @Override
-    public void send(Message message, int i, int i1, long l, CompletionListener completionListener) throws JMSException {
+    public void send(Destination dest, List<? extends Message> messages) throws JMSException {
+        verifyState();
 
+        if (this.destImpl != null)
+            throw new UnsupportedOperationException("This send method is only supported for unidentified MessageProducer!");
+
+        List<MessageImpl> msgs = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Message msg = initMessageForSend(message);
+            msg.setJMSDestination(dest);
+            // TCK: Foreign message
+            if (msg != message)
+                message.setJMSDestination(dest);
+            if (isTopicDestination((DestinationImpl) dest) && clientId != null)
+                msg.setStringProperty(MessageImpl.PROP_CLIENT_ID, clientId);
+            msgs.add((MessageImpl) msg);
+        }
+        processSend(-1, msgs);
     }
 
+    // Sends are completed synchronously, the listener is called before the method returns
     @Override
-    public void send(Destination destination, Message message, CompletionListener completionListener) throws JMSException {
+    public void send(Message message, CompletionListener completionListener) throws JMSException {
+        send(message);
+        completionListener.onCompletion(message);
+    }
 
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long ttl, CompletionListener completionListener) throws JMSException {
+        send(message, deliveryMode, priority, ttl);
+        completionListener.onCompletion(message);
     }
 
     @Override
-    public void send(Destination destination, Message message, int i, int i1, long l, CompletionListener completionListener) throws JMSException {
+    public void send(Destination destination, Message message, CompletionListener completionListener) throws JMSException {
+        send(destination, message);
+        completionListener.onCompletion(message);
+    }
 
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long ttl, CompletionListener completionListener) throws JMSException {
+        send(destination, message, deliveryMode, priority, ttl);
+        completionListener.onCompletion(message);
     }
     // <-- JMS 1.1
 
@@ -534,6 +667,10 @@ public class MessageProducerImpl implements MessageProducerExtended, RequestRetr
             }
         }
 
+        ProducerOutbox outbox = mySession.myConnection.producerOutbox;
+        if (outbox != null)
+            outbox.drainOrDrop(this);
+
         closed = true;
 
         // Fix: 2.1.0
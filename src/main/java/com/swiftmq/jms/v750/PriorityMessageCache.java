@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.jms.MessageImpl;
+import com.swiftmq.jms.smqp.v750.AsyncMessageDeliveryRequest;
+import com.swiftmq.tools.collection.RingBuffer;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consumer cache which returns messages by descending JMSPriority and FIFO within a priority.
+ * As long as all cached messages have the same priority, only a single ring buffer is used.
+ * <p>
+ * The requiresRestart flag of the last message of a batch is moved to the message which
+ * empties the cache, so the next batch is still requested only when the cache is drained.
+ */
+class PriorityMessageCache extends RingBuffer {
+    static final int NUMBER_PRIORITIES = 10;
+    final int extendSize;
+    final RingBuffer[] buckets = new RingBuffer[NUMBER_PRIORITIES];
+    int highest = -1;
+    int size = 0;
+    boolean restartPending = false;
+    final ReentrantLock lock = new ReentrantLock();
+
+    PriorityMessageCache(int extendSize) {
+        super(1);
+        this.extendSize = extendSize;
+    }
+
+    private static int priority(AsyncMessageDeliveryRequest request) {
+        MessageImpl msg = request.getMessageEntry().getMessage();
+        int prio = 0;
+        try {
+            prio = msg.getJMSPriority();
+        } catch (Exception ignored) {
+        }
+        return Math.max(0, Math.min(NUMBER_PRIORITIES - 1, prio));
+    }
+
+    public void add(Object obj) {
+        int prio = priority((AsyncMessageDeliveryRequest) obj);
+        lock.lock();
+        try {
+            RingBuffer bucket = buckets[prio];
+            if (bucket == null) {
+                bucket = new RingBuffer(extendSize);
+                buckets[prio] = bucket;
+            }
+            bucket.add(obj);
+            if (prio > highest)
+                highest = prio;
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Object remove() {
+        lock.lock();
+        try {
+            if (size == 0)
+                return null;
+            AsyncMessageDeliveryRequest request = (AsyncMessageDeliveryRequest) buckets[highest].remove();
+            size--;
+            while (highest >= 0 && (buckets[highest] == null || buckets[highest].getSize() == 0))
+                highest--;
+            if (request.isRequiresRestart() && size > 0) {
+                request.setRequiresRestart(false);
+                restartPending = true;
+            } else if (restartPending && size == 0) {
+                request.setRequiresRestart(true);
+                restartPending = false;
+            }
+            return request;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (RingBuffer bucket : buckets) {
+                if (bucket != null)
+                    bucket.clear();
+            }
+            highest = -1;
+            size = 0;
+            restartPending = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
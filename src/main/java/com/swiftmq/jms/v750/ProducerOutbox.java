@@ -0,0 +1,389 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.client.thread.PoolManager;
+import com.swiftmq.jms.MessageImpl;
+import com.swiftmq.jms.smqp.v750.ProduceMessageReply;
+import com.swiftmq.jms.smqp.v750.ProduceMessageRequest;
+import com.swiftmq.jms.smqp.v750.SMQPUtil;
+import com.swiftmq.swiftlet.threadpool.AsyncTask;
+import com.swiftmq.swiftlet.threadpool.ThreadPool;
+
+import jakarta.jms.JMSException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Store-and-forward outbox of a connection. While a reconnect is in progress, non-transacted
+ * sends are appended to a memory-mapped journal file and return immediately. After the
+ * reconnect the journal is drained in send order by a single task. Every later send goes
+ * through the outbox as well until it is empty, so the order per producer is kept.
+ * A journal record is the message length followed by the serialized message. Each entry of a
+ * batch asks for a reply, so a rejection is reported for exactly the affected messages, and the
+ * flow control delay of the router is applied. Entries are removed after the router has replied
+ * to their whole batch on the same connection; batches that were interrupted by a failover are
+ * sent again with the doubt duplicate flag set, so the router's duplicate detection drops what
+ * already arrived. If the journal is full, the sender waits until the outbox is drained and
+ * then sends as usual.
+ * <p>
+ * The outbox weakens the guarantee of PERSISTENT sends: send returns before the router has
+ * stored the message, and the journal does not survive the JVM. Messages the router rejects
+ * later, and messages that are still queued when their producer, session or connection is
+ * closed after swiftmq.jms.producer.outbox.close.timeout, are dropped and reported to the
+ * ExceptionListener of the connection. Connection.close throws in that case as well.
+ */
+class ProducerOutbox {
+    static final String DIRECTORY = System.getProperty("swiftmq.jms.producer.outbox.directory");
+    static final int SIZE = Integer.parseInt(System.getProperty("swiftmq.jms.producer.outbox.size", "16777216"));
+    static final int DRAIN_BATCH_SIZE = Integer.parseInt(System.getProperty("swiftmq.jms.producer.outbox.drain.batchsize", "100"));
+    static final long CLOSE_TIMEOUT = Long.parseLong(System.getProperty("swiftmq.jms.producer.outbox.close.timeout", "30000"));
+    static final boolean DEBUG = Boolean.valueOf(System.getProperty("swiftmq.jms.producer.outbox.debug", "false")).booleanValue();
+
+    final ConnectionImpl connection;
+    final File file;
+    final RandomAccessFile raf;
+    final MappedByteBuffer journal;
+    final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition drained = lock.newCondition();
+    final ThreadPool threadPool = PoolManager.getInstance().getSessionPool();
+    final Drainer drainer = new Drainer();
+    int writePos = 0;
+    boolean draining = false;
+    volatile int pending = 0;
+    volatile boolean closed = false;
+
+    ProducerOutbox(ConnectionImpl connection) throws IOException {
+        this.connection = connection;
+        file = File.createTempFile("outbox-", ".journal", new File(DIRECTORY));
+        file.deleteOnExit();
+        raf = new RandomAccessFile(file, "rw");
+        journal = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+    }
+
+    // Cheap pre-check so that messages are only serialized if the outbox might take them
+    boolean isActive() {
+        return !closed && (pending > 0 || connection.reconnectInProgress.get());
+    }
+
+    // Returns false if the message must be sent directly; the outbox is empty then
+    boolean offer(MessageProducerImpl producer, boolean identified, byte[] message) {
+        lock.lock();
+        try {
+            if (closed || entries.isEmpty() && !connection.reconnectInProgress.get())
+                return false;
+            if (writePos + 4 + message.length > SIZE) {
+                if (DEBUG) System.out.println(toString() + "/offer, journal full, wait until drained");
+                while (!closed && !entries.isEmpty())
+                    drained.awaitUninterruptibly();
+                return false;
+            }
+            journal.putInt(writePos, message.length);
+            ByteBuffer buffer = journal.duplicate();
+            buffer.position(writePos + 4);
+            buffer.put(message);
+            entries.add(new Entry(producer, identified, writePos, message.length));
+            writePos += 4 + message.length;
+            pending = entries.size();
+            triggerDrain();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called after a reconnect
+    void drain() {
+        lock.lock();
+        try {
+            triggerDrain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void triggerDrain() {
+        if (!closed && !draining && !entries.isEmpty() && !connection.reconnectInProgress.get()) {
+            draining = true;
+            threadPool.dispatchTask(drainer);
+        }
+    }
+
+    /**
+     * Waits up to the close timeout until all messages of a producer, a session or, with owner
+     * null, of all producers are sent. Messages still queued after that are dropped and reported.
+     * Called before the owner is closed.
+     *
+     * @param owner producer, session or null
+     * @return number of dropped messages
+     */
+    int drainOrDrop(Object owner) {
+        lock.lock();
+        try {
+            long nanos = CLOSE_TIMEOUT * 1000000L;
+            while (!closed && countEntriesOf(owner) > 0 && nanos > 0) {
+                try {
+                    nanos = drained.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            int dropped = 0;
+            for (Entry entry : entries) {
+                if (!entry.dropped && isOwner(entry, owner)) {
+                    entry.dropped = true;
+                    dropped++;
+                }
+            }
+            if (dropped > 0)
+                connection.notifyExceptionListener(new JMSException(toString() + ": " + dropped + " messages not sent before close, dropped"));
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int countEntriesOf(Object owner) {
+        int n = 0;
+        for (Entry entry : entries) {
+            if (!entry.dropped && isOwner(entry, owner))
+                n++;
+        }
+        return n;
+    }
+
+    private boolean isOwner(Entry entry, Object owner) {
+        return owner == null || entry.producer == owner || entry.producer.mySession == owner;
+    }
+
+    private void reportFailure(List<Entry> failed, Exception exception) {
+        JMSException e = new JMSException(toString() + ": send failed, " + failed.size() + " messages dropped: " + exception);
+        if (exception != null)
+            e.setLinkedException(exception);
+        connection.notifyExceptionListener(e);
+    }
+
+    private List<Entry> nextBatch() {
+        lock.lock();
+        try {
+            if (closed || entries.isEmpty() || connection.reconnectInProgress.get()) {
+                draining = false;
+                return null;
+            }
+            List<Entry> batch = new ArrayList<>(Math.min(entries.size(), DRAIN_BATCH_SIZE));
+            for (Entry entry : entries) {
+                if (batch.size() == DRAIN_BATCH_SIZE)
+                    break;
+                batch.add(entry);
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void completeBatch(List<Entry> batch, boolean sent) {
+        lock.lock();
+        try {
+            if (sent) {
+                for (int i = 0; i < batch.size(); i++)
+                    entries.poll();
+                pending = entries.size();
+                if (entries.isEmpty())
+                    writePos = 0;
+            } else {
+                for (Entry entry : batch)
+                    entry.doubtDuplicate = true;
+            }
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ProduceMessageRequest createRequest(Entry entry) throws Exception {
+        byte[] b = new byte[entry.length];
+        ByteBuffer buffer = journal.duplicate();
+        buffer.position(entry.position + 4);
+        buffer.get(b);
+        MessageProducerImpl producer = entry.producer;
+        if (entry.doubtDuplicate) {
+            MessageImpl msg = SMQPUtil.toMessage(b);
+            msg.setBooleanProperty(MessageImpl.PROP_DOUBT_DUPLICATE, true);
+            b = SMQPUtil.toBytes(msg);
+        }
+        // The producer id may have changed by a reconnect
+        int producerId = entry.identified ? producer.producerId : -1;
+        return new ProduceMessageRequest(producer, producer.mySession.dispatchId, producerId, null, b);
+    }
+
+    // Returns false if the batch was interrupted by a failover and must be sent again.
+    // The batch is pipelined: all requests are written first, then the replies are awaited.
+    private boolean send(List<Entry> batch) throws Exception {
+        List<Entry> toSend = new ArrayList<>(batch.size());
+        lock.lock();
+        try {
+            for (Entry entry : batch) {
+                if (!entry.dropped)
+                    toSend.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (toSend.isEmpty())
+            return true;
+        int connectionId = connection.getConnectionId();
+        List<ProduceMessageRequest> requests = new ArrayList<>(toSend.size());
+        Exception exception = null;
+        try {
+            for (Entry entry : toSend) {
+                ProduceMessageRequest request = createRequest(entry);
+                request.setReplyRequired(true);
+                connection.requestRegistry.requestAsync(request);
+                requests.add(request);
+            }
+        } catch (Exception e) {
+            exception = e;
+        }
+        boolean complete = exception == null;
+        long delay = 0;
+        List<Entry> failed = new ArrayList<>();
+        Exception failure = null;
+        for (int i = 0; i < requests.size(); i++) {
+            ProduceMessageReply reply = (ProduceMessageReply) connection.requestRegistry.awaitReply(requests.get(i));
+            if (reply == null)
+                complete = false;
+            else if (!reply.isOk()) {
+                failed.add(toSend.get(i));
+                if (failure == null)
+                    failure = reply.getException();
+            } else
+                delay = Math.max(delay, reply.getDelay());
+        }
+        if (exception != null)
+            throw exception;
+        if (!complete || connectionId != connection.getConnectionId())
+            return false;
+        if (!failed.isEmpty())
+            reportFailure(failed, failure);
+        // Flow control of the router
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        return true;
+    }
+
+    // Returns the number of dropped messages, they are reported to the exception listener
+    int close() {
+        int dropped = 0;
+        lock.lock();
+        try {
+            if (closed)
+                return 0;
+            closed = true;
+            for (Entry entry : entries) {
+                if (!entry.dropped)
+                    dropped++;
+            }
+            entries.clear();
+            pending = 0;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            raf.close();
+        } catch (IOException ignored) {
+        }
+        file.delete();
+        if (dropped > 0)
+            connection.notifyExceptionListener(new JMSException(toString() + ": closed, " + dropped + " messages not sent, dropped"));
+        return dropped;
+    }
+
+    public String toString() {
+        return "ProducerOutbox, file=" + file + ", pending=" + pending;
+    }
+
+    private static class Entry {
+        final MessageProducerImpl producer;
+        final boolean identified;
+        final int position;
+        final int length;
+        boolean doubtDuplicate = false;
+        boolean dropped = false;
+
+        Entry(MessageProducerImpl producer, boolean identified, int position, int length) {
+            this.producer = producer;
+            this.identified = identified;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private class Drainer implements AsyncTask {
+        public boolean isValid() {
+            return !closed;
+        }
+
+        public String getDispatchToken() {
+            return SessionImpl.DISPATCH_TOKEN;
+        }
+
+        public String getDescription() {
+            return connection.myHostname + "/ProducerOutbox/Drainer";
+        }
+
+        public void run() {
+            List<Entry> batch;
+            while ((batch = nextBatch()) != null) {
+                boolean sent;
+                try {
+                    sent = send(batch);
+                } catch (Exception e) {
+                    // Only a failover is retried, anything else would fail again
+                    sent = !connection.reconnectInProgress.get();
+                    if (sent)
+                        reportFailure(batch, e);
+                    else if (DEBUG)
+                        System.out.println(ProducerOutbox.this.toString() + "/drain interrupted: " + e);
+                }
+                if (DEBUG)
+                    System.out.println(ProducerOutbox.this.toString() + "/drain, batch=" + batch.size() + ", sent=" + sent);
+                completeBatch(batch, sent);
+            }
+        }
+
+        public void stop() {
+        }
+    }
+}
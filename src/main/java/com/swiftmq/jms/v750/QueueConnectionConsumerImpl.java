@@ -51,7 +51,6 @@ public class QueueConnectionConsumerImpl extends ConnectionConsumerImpl implemen
     public List getRecreatables() {
         List list = new ArrayList();
         list.add(new SessionRecreator());
-        list.add(new ConsumerRecreator());
         return list;
     }
 
@@ -89,7 +88,10 @@ public class QueueConnectionConsumerImpl extends ConnectionConsumerImpl implemen
         }
 
         public List getRecreatables() {
-            return null;
+            // The consumer needs the new session dispatch id
+            List list = new ArrayList();
+            list.add(new ConsumerRecreator());
+            return list;
         }
     }
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.jms.RequestTimeoutException;
+import com.swiftmq.jms.Requestor;
+import com.swiftmq.tools.timer.TimerEvent;
+import com.swiftmq.tools.timer.TimerListener;
+import com.swiftmq.tools.timer.TimerRegistry;
+
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+class RequestorImpl implements Requestor, MessageListener, TimerListener {
+    static final long SWEEP_INTERVAL = Long.parseLong(System.getProperty("swiftmq.jms.requestor.sweep.interval", "100"));
+    static final boolean DEBUG = Boolean.valueOf(System.getProperty("swiftmq.jms.requestor.debug", "false")).booleanValue();
+
+    final SessionImpl session;
+    final long defaultTimeout;
+    final String correlationPrefix = UUID.randomUUID().toString() + "-";
+    final AtomicLong nextId = new AtomicLong();
+    final Map<String, PendingRequest> pending = new ConcurrentHashMap<>();
+    final ReentrantLock sendLock = new ReentrantLock();
+    TemporaryQueue replyQueue = null;
+    MessageConsumer consumer = null;
+    MessageProducer producer = null;
+    volatile boolean closed = false;
+
+    RequestorImpl(SessionImpl session, Destination destination, long defaultTimeout) throws JMSException {
+        this.session = session;
+        this.defaultTimeout = defaultTimeout;
+        replyQueue = session.createTemporaryQueue();
+        try {
+            consumer = session.createReceiver(replyQueue, null);
+            consumer.setMessageListener(this);
+            producer = session.createProducer(destination);
+        } catch (JMSException e) {
+            closeResources();
+            throw e;
+        }
+        TimerRegistry.Singleton().addTimerListener(SWEEP_INTERVAL, this);
+    }
+
+    public CompletableFuture<Message> request(Message request) throws JMSException {
+        return request(request, defaultTimeout);
+    }
+
+    public CompletableFuture<Message> request(Message request, long timeout) throws JMSException {
+        if (closed)
+            throw new IllegalStateException("Requestor is closed");
+        String correlationId = correlationPrefix + nextId.incrementAndGet();
+        PendingRequest pendingRequest = new PendingRequest(timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE);
+        // registered before the send as the reply may arrive before send returns
+        pending.put(correlationId, pendingRequest);
+        sendLock.lock();
+        try {
+            request.setJMSCorrelationID(correlationId);
+            request.setJMSReplyTo(replyQueue);
+            producer.send(request);
+        } catch (JMSException e) {
+            pending.remove(correlationId);
+            throw e;
+        } finally {
+            sendLock.unlock();
+        }
+        return pendingRequest.future;
+    }
+
+    public int getPendingRequests() {
+        return pending.size();
+    }
+
+    public void onMessage(Message reply) {
+        String correlationId = null;
+        try {
+            correlationId = reply.getJMSCorrelationID();
+        } catch (JMSException e) {
+        }
+        PendingRequest pendingRequest = correlationId != null ? pending.remove(correlationId) : null;
+        if (pendingRequest == null) {
+            if (DEBUG) System.out.println(toString() + "/onMessage, no pending request (late reply?), correlationId=" + correlationId);
+            return;
+        }
+        pendingRequest.future.complete(reply);
+    }
+
+    public void performTimeAction(TimerEvent evt) {
+        if (session.closed) {
+            try {
+                close();
+            } catch (JMSException e) {
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, PendingRequest>> iter = pending.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<String, PendingRequest> entry = iter.next();
+            PendingRequest pendingRequest = entry.getValue();
+            if (pendingRequest.future.isDone())
+                iter.remove();
+            else if (pendingRequest.deadline <= now && pending.remove(entry.getKey(), pendingRequest)) {
+                if (DEBUG) System.out.println(toString() + "/request timed out, correlationId=" + entry.getKey());
+                pendingRequest.future.completeExceptionally(new RequestTimeoutException("Request timed out, correlationId=" + entry.getKey()));
+            }
+        }
+    }
+
+    public void close() throws JMSException {
+        if (closed)
+            return;
+        closed = true;
+        TimerRegistry.Singleton().removeTimerListener(SWEEP_INTERVAL, this);
+        for (Iterator<PendingRequest> iter = pending.values().iterator(); iter.hasNext(); ) {
+            PendingRequest pendingRequest = iter.next();
+            iter.remove();
+            pendingRequest.future.completeExceptionally(new IllegalStateException("Requestor is closed"));
+        }
+        closeResources();
+    }
+
+    private void closeResources() throws JMSException {
+        JMSException exception = null;
+        try {
+            if (consumer != null)
+                consumer.close();
+        } catch (JMSException e) {
+            exception = e;
+        }
+        try {
+            if (producer != null)
+                producer.close();
+        } catch (JMSException e) {
+            if (exception == null)
+                exception = e;
+        }
+        try {
+            if (!session.closed)
+                replyQueue.delete();
+        } catch (JMSException e) {
+            if (exception == null)
+                exception = e;
+        }
+        if (exception != null)
+            throw exception;
+    }
+
+    public String toString() {
+        return session.toString() + "/RequestorImpl, pending=" + pending.size();
+    }
+
+    private static class PendingRequest {
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+        final long deadline;
+
+        PendingRequest(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
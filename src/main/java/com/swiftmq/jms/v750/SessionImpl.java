@@ -80,6 +80,7 @@ public class SessionImpl
     int type = TYPE_SESSION;
     boolean useThreadContextCL = false;
     volatile boolean resetInProgress = false;
+    volatile boolean held = false;
     ConnectionConsumerImpl connectionConsumer = null;
     volatile String shadowConsumerQueueName = null;
     List delayedClosedProducers = new ArrayList();
@@ -139,6 +140,16 @@ public class SessionImpl
         return requestRegistry.request(request);
     }
 
+    void requestBlockableAsync(Request request) throws Exception {
+        if (blockSem != null)
+            blockSem.waitHere();
+        requestRegistry.requestAsync(request);
+    }
+
+    Reply awaitReply(Request request) {
+        return requestRegistry.awaitReply(request);
+    }
+
     public void setRunning(boolean running) {
         lock.writeLock().lock();
         try {
@@ -233,6 +244,7 @@ public class SessionImpl
                 for (Iterator iter = consumerMap.entrySet().iterator(); iter.hasNext(); ) {
                     MessageConsumerImpl c = (MessageConsumerImpl) ((Map.Entry) iter.next()).getValue();
                     c.clearCache();
+                    c.clearDeliveryReports();
                 }
                 clearMessageChunks();
             } else {
@@ -262,8 +274,18 @@ public class SessionImpl
         this.connectionConsumer = connectionConsumer;
     }
 
+    // Delivery of a held session stays stopped while its connection is started,
+    // used by JMSContexts sharing a connection to start and stop independently
+    void setHeld(boolean held) {
+        this.held = held;
+        if (held)
+            stopSession();
+        else if (myConnection.connectionState == ConnectionImpl.CONNECTED_STARTED)
+            startSession();
+    }
+
     void startSession() {
-        if (messageListener == null) {
+        if (messageListener == null && !held) {
             sessionQueue.startQueue();
             sessionQueue.triggerInvocation();
         }
@@ -373,6 +395,23 @@ public class SessionImpl
         this.myDispatchId = myDispatchId;
     }
 
+    boolean hasReceiverOn(String queueName) {
+        lock.readLock().lock();
+        try {
+            for (Object o : consumerMap.values()) {
+                if (o instanceof QueueReceiverImpl) {
+                    Queue queue = ((QueueReceiverImpl) o).queue;
+                    if (queue != null && queueName.equals(queue.getQueueName()))
+                        return true;
+                }
+            }
+        } catch (JMSException e) {
+        } finally {
+            lock.readLock().unlock();
+        }
+        return false;
+    }
+
     void addMessageConsumerImpl(MessageConsumerImpl consumer) {
         lock.writeLock().lock();
         try {
@@ -389,6 +428,16 @@ public class SessionImpl
 
     }
 
+    void flushDeliveryReports() {
+        lock.readLock().lock();
+        try {
+            for (Object o : consumerMap.values())
+                ((MessageConsumerImpl) o).flushDeliveryReports();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     void removeMessageConsumerImpl(MessageConsumerImpl consumer) {
         lock.writeLock().lock();
         try {
@@ -615,23 +664,52 @@ public class SessionImpl
     }
 
     @Override
-    public MessageConsumer createDurableConsumer(Topic topic, String s) throws JMSException {
-        return null;
+    public MessageConsumer createDurableConsumer(Topic topic, String name) throws JMSException {
+        return createDurableSubscriber(topic, name, null, false);
     }
 
     @Override
-    public MessageConsumer createDurableConsumer(Topic topic, String s, String s1, boolean b) throws JMSException {
-        return null;
+    public MessageConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal) throws JMSException {
+        return createDurableSubscriber(topic, name, messageSelector, noLocal);
     }
 
     @Override
-    public MessageConsumer createSharedDurableConsumer(Topic topic, String s) throws JMSException {
-        return null;
+    public MessageConsumer createSharedDurableConsumer(Topic topic, String name) throws JMSException {
+        return createSharedSubscriptionConsumer(topic, name, null);
     }
 
     @Override
-    public MessageConsumer createSharedDurableConsumer(Topic topic, String s, String s1) throws JMSException {
-        return null;
+    public MessageConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector) throws JMSException {
+        return createSharedSubscriptionConsumer(topic, name, messageSelector);
+    }
+
+    private MessageConsumer createSharedSubscriptionConsumer(Topic topic, String name, String messageSelector)
+            throws JMSException {
+        verifyState();
+
+        if (topic == null)
+            throw new InvalidDestinationException("createSharedConsumer, topic is null!");
+
+        if (name == null)
+            throw new NullPointerException("createSharedConsumer, name is null!");
+
+        String ms = messageSelector;
+        if (messageSelector != null && messageSelector.trim().length() == 0)
+            ms = null;
+        if (ms != null) {
+            try {
+                new MessageSelector(ms).compile();
+            } catch (Exception e) {
+                throw ExceptionConverter.convert(e);
+            }
+        }
+
+        // The subscription is backed by a durable subscriber queue, consumers compete on it
+        String queueName = myConnection.attachSharedSubscription(topic, name, ms);
+        QueueReceiverImpl receiver = (QueueReceiverImpl) createReceiver(new QueueImpl(queueName), null);
+        receiver.sharedSubscriptionQueue = queueName;
+        myConnection.sharedSubscriptions.addConsumer(queueName);
+        return receiver;
     }
 
     public TopicPublisher createPublisher(Topic topic)
@@ -710,13 +788,13 @@ public class SessionImpl
     }
 
     @Override
-    public MessageConsumer createSharedConsumer(Topic topic, String s) throws JMSException {
-        return null;
+    public MessageConsumer createSharedConsumer(Topic topic, String name) throws JMSException {
+        return createSharedSubscriptionConsumer(topic, name, null);
     }
 
     @Override
-    public MessageConsumer createSharedConsumer(Topic topic, String s, String s1) throws JMSException {
-        return null;
+    public MessageConsumer createSharedConsumer(Topic topic, String name, String messageSelector) throws JMSException {
+        return createSharedSubscriptionConsumer(topic, name, messageSelector);
     }
 
     public Queue createQueue(String queueName) throws JMSException {
@@ -786,12 +864,26 @@ public class SessionImpl
         return (queueBrowser);
     }
 
+    public Requestor createRequestor(Destination destination, long timeout) throws JMSException {
+        verifyState();
+
+        if (destination == null)
+            throw new InvalidDestinationException("createRequestor, destination is null!");
+
+        if (transacted || xaMode || acknowledgeMode == Session.CLIENT_ACKNOWLEDGE)
+            throw new IllegalStateException("createRequestor, session must be non-transacted with AUTO_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE");
+
+        return new RequestorImpl(this, destination, timeout);
+    }
+
     public TemporaryQueue createTemporaryQueue() throws JMSException {
         verifyState();
         if (type == TYPE_TOPIC_SESSION)
             throw new IllegalStateException("Operation not allowed on this session type");
 
-        TemporaryQueueImpl tempQueue = null;
+        TemporaryQueueImpl tempQueue = myConnection.leaseTempQueue(this);
+        if (tempQueue != null)
+            return tempQueue;
         CreateTmpQueueReply reply = null;
 
         try {
@@ -844,6 +936,11 @@ public class SessionImpl
         if (name == null)
             throw new NullPointerException("unsubscribe, name is null!");
 
+        if (myConnection.getClientID() == null) {
+            myConnection.detachSharedSubscription(name);
+            return;
+        }
+
         DeleteDurableReply reply = null;
 
         try {
@@ -856,6 +953,7 @@ public class SessionImpl
         if (!reply.isOk()) {
             throw ExceptionConverter.convert(reply.getException());
         }
+        myConnection.detachSharedSubscription(name);
     }
     // <-- JMS 1.1
 
@@ -885,7 +983,9 @@ public class SessionImpl
     public ObjectMessage createObjectMessage() throws JMSException {
         verifyState();
 
-        return (new ObjectMessageImpl());
+        ObjectMessageImpl msg = new ObjectMessageImpl();
+        msg.setSerializer(myConnection.getObjectMessageSerializer());
+        return (msg);
     }
 
     public ObjectMessage createObjectMessage(Serializable object)
@@ -934,6 +1034,7 @@ public class SessionImpl
         if (transacted) {
             CommitReply reply = null;
             try {
+                flushDeliveryReports();
                 CommitRequest req = new CommitRequest(this, dispatchId);
                 reply = (CommitReply) requestTransaction(req);
                 txCancelled = req.isCancelledByValidator() || req.isWasRetry();
@@ -1028,6 +1129,7 @@ public class SessionImpl
         verifyState();
 
         if (transacted) {
+            flushDeliveryReports();
             startRecoverConsumers();
 
             // drop stored messages on the client side (produced messages)
@@ -1062,6 +1164,8 @@ public class SessionImpl
     public void close() throws JMSException {
         if (closed)
             return;
+        if (myConnection.producerOutbox != null)
+            myConnection.producerOutbox.drainOrDrop(this);
         if (messageListener == null && !isSessionStarted()) {
             _close();
             return;
@@ -1083,6 +1187,8 @@ public class SessionImpl
             return;
         sessionQueue.stopQueue();
         sessionQueue.clear();
+        flushDeliveryReports();
+        List<String> sharedQueues = new ArrayList<>();
         lock.writeLock().lock();
         try {
             closed = true;
@@ -1091,6 +1197,8 @@ public class SessionImpl
                 for (Object o : consumerMap.entrySet()) {
                     MessageConsumerImpl consumer = (MessageConsumerImpl) ((Map.Entry) o).getValue();
                     consumer.cancel();
+                    if (consumer.sharedSubscriptionQueue != null)
+                        sharedQueues.add(consumer.sharedSubscriptionQueue);
                 }
                 consumerMap.clear();
             }
@@ -1110,6 +1218,8 @@ public class SessionImpl
         }
         myConnection.removeRequestService(myDispatchId);
         myConnection.removeSession(this);
+        for (String queueName : sharedQueues)
+            myConnection.sharedSubscriptions.removeConsumer(queueName);
     }
 
     void cancel() {
@@ -1138,6 +1248,7 @@ public class SessionImpl
                 onMessageConsumer = null;
             }
 
+            flushDeliveryReports();
             startRecoverConsumers();
 
             Reply reply = null;
@@ -1264,6 +1375,7 @@ public class SessionImpl
     public boolean acknowledgeMessage(MessageIndex messageIndex) throws JMSException {
         if (closed)
             throw new jakarta.jms.IllegalStateException("Connection is closed");
+        flushDeliveryReports();
         Request request = new AcknowledgeMessageRequest(this, dispatchId, 0, messageIndex);
         Reply reply = requestRegistry.request(request);
         if (!reply.isOk())
@@ -1411,7 +1523,30 @@ public class SessionImpl
     }
 
     public void serviceRequest(Request request) {
-        sessionQueue.enqueue(request);
+        if (request instanceof AsyncMessageDeliveryRequest && isDirectDispatchable()) {
+            Thread previous = requestRegistry.setDirectDispatchThread(Thread.currentThread());
+            try {
+                sessionQueue.processDirect(request);
+            } finally {
+                requestRegistry.setDirectDispatchThread(previous);
+            }
+        } else
+            sessionQueue.enqueue(request);
+    }
+
+    // Only for a consumer which opted in, see SwiftMQMessageConsumer.setDirectDispatch
+    private boolean isDirectDispatchable() {
+        if (transacted || xaMode || messageListener != null || acknowledgeMode == Session.CLIENT_ACKNOWLEDGE)
+            return false;
+        lock.readLock().lock();
+        try {
+            if (consumerMap.size() != 1)
+                return false;
+            MessageConsumerImpl consumer = (MessageConsumerImpl) consumerMap.values().iterator().next();
+            return consumer.directDispatch && consumer.messageListener != null;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     private class SessionDeliveryQueue extends SingleProcessorQueue {
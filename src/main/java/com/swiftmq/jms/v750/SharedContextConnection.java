@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import jakarta.jms.ExceptionListener;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A connection shared by all JMSContexts of a ConnectionFactoryImpl with the same credentials.
+ * Sessions are pooled per session mode, so creating a context costs a session checkout.
+ * The connection is reference counted by its contexts and closed after it has been idle
+ * for "swiftmq.jms.context.idle.timeout" milliseconds. A context that sets a client ID
+ * gets a dedicated instance which is not shared with other contexts and closed on release.
+ */
+class SharedContextConnection implements ExceptionListener {
+    static final long IDLE_TIMEOUT = Long.parseLong(System.getProperty("swiftmq.jms.context.idle.timeout", "30000"));
+    static final int MAX_POOLED_SESSIONS = Integer.parseInt(System.getProperty("swiftmq.jms.context.pool.size", "32"));
+    static final boolean DEBUG = Boolean.valueOf(System.getProperty("swiftmq.jms.context.debug", "false")).booleanValue();
+
+    final String key;
+    final String userName;
+    final String password;
+    final boolean dedicated;
+    final ConnectionImpl connection;
+    final ConcurrentLinkedDeque<SessionImpl>[] pools = new ConcurrentLinkedDeque[4];
+    final AtomicInteger[] poolSizes = new AtomicInteger[4];
+    final List<ExceptionListener> exceptionListeners = new CopyOnWriteArrayList<>();
+    volatile boolean broken = false;
+    int refCount = 0;
+    int idleEpoch = 0;
+
+    SharedContextConnection(String key, String userName, String password, boolean dedicated, ConnectionImpl connection) throws JMSException {
+        this.key = key;
+        this.userName = userName;
+        this.password = password;
+        this.dedicated = dedicated;
+        this.connection = connection;
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new ConcurrentLinkedDeque<>();
+            poolSizes[i] = new AtomicInteger();
+        }
+        connection.setExceptionListener(this);
+        if (DEBUG) System.out.println(toString() + "/created");
+    }
+
+    boolean isUsable() {
+        return !broken && !connection.closed;
+    }
+
+    SessionImpl checkOut(int sessionMode) throws JMSException {
+        SessionImpl session;
+        while ((session = pools[sessionMode].poll()) != null) {
+            poolSizes[sessionMode].decrementAndGet();
+            if (!session.isClosed())
+                return session;
+        }
+        if (DEBUG) System.out.println(toString() + "/checkOut, new session, mode=" + sessionMode);
+        return (SessionImpl) connection.createSession(sessionMode);
+    }
+
+    void checkIn(SessionImpl session, int sessionMode) {
+        if (session.isClosed())
+            return;
+        try {
+            session.setHeld(false);
+            if (sessionMode == Session.SESSION_TRANSACTED)
+                session.rollback();
+            else if (sessionMode == Session.CLIENT_ACKNOWLEDGE)
+                session.recover();
+            if (isUsable() && poolSizes[sessionMode].incrementAndGet() <= MAX_POOLED_SESSIONS) {
+                pools[sessionMode].offer(session);
+                return;
+            }
+            poolSizes[sessionMode].decrementAndGet();
+            session.close();
+        } catch (JMSException e) {
+            try {
+                session.close();
+            } catch (JMSException ignored) {
+            }
+        }
+    }
+
+    void addExceptionListener(ExceptionListener listener) {
+        exceptionListeners.add(listener);
+    }
+
+    void removeExceptionListener(ExceptionListener listener) {
+        exceptionListeners.remove(listener);
+    }
+
+    public void onException(JMSException exception) {
+        if (DEBUG) System.out.println(toString() + "/onException, exception=" + exception);
+        broken = true;
+        for (ExceptionListener listener : exceptionListeners)
+            listener.onException(exception);
+    }
+
+    void close() {
+        if (DEBUG) System.out.println(toString() + "/close");
+        for (ConcurrentLinkedDeque<SessionImpl> pool : pools)
+            pool.clear();
+        try {
+            connection.close();
+        } catch (JMSException ignored) {
+        }
+    }
+
+    public String toString() {
+        return "/SharedContextConnection, dedicated=" + dedicated + ", refCount=" + refCount;
+    }
+}
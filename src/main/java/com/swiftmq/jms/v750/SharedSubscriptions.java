@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms.v750;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Book-keeping of the shared subscriptions of a connection. A shared subscription is backed by
+ * a durable subscription of an owner client ID, and its consumers are receivers on the durable
+ * subscriber queue <owner>$<name>. An attachment (queue, topic, selector) is remembered so the
+ * durable subscription is created only once per connection. It is forgotten when the last
+ * consumer of this connection on that queue is closed, so a later consumer creates it again if
+ * another connection has unsubscribed it meanwhile. The subscription itself is never removed
+ * here: consumers of other connections might still use it, which this connection can't see.
+ */
+class SharedSubscriptions {
+    final String clientIdPrefix;
+    final Set<String> attached = new HashSet<>();
+    final Map<String, Integer> consumers = new HashMap<>();
+
+    SharedSubscriptions(String clientIdPrefix) {
+        this.clientIdPrefix = clientIdPrefix;
+    }
+
+    // The client ID of the connection, if set, otherwise derived from the subscription name
+    String getOwner(String clientId, String name) {
+        return clientId != null ? clientId : clientIdPrefix + name;
+    }
+
+    // Durable subscriber queues are named <clientid>$<durablename> on the router
+    static String getQueueName(String owner, String name) {
+        return owner + "$" + name;
+    }
+
+    static String getKey(String queueName, String topicName, String messageSelector) {
+        return queueName + "/" + topicName + "/" + messageSelector;
+    }
+
+    synchronized boolean isAttached(String key) {
+        return attached.contains(key);
+    }
+
+    synchronized void setAttached(String key) {
+        attached.add(key);
+    }
+
+    synchronized void detach(String queueName) {
+        String prefix = queueName + "/";
+        attached.removeIf(k -> k.startsWith(prefix));
+    }
+
+    synchronized void addConsumer(String queueName) {
+        consumers.merge(queueName, 1, Integer::sum);
+    }
+
+    // Returns true if it was the last consumer of this connection on the queue
+    synchronized boolean removeConsumer(String queueName) {
+        Integer count = consumers.get(queueName);
+        if (count == null)
+            return false;
+        if (count > 1) {
+            consumers.put(queueName, count - 1);
+            return false;
+        }
+        consumers.remove(queueName);
+        detach(queueName);
+        return true;
+    }
+
+    synchronized int getConsumerCount(String queueName) {
+        Integer count = consumers.get(queueName);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms.v750;
+
+import com.swiftmq.client.thread.PoolManager;
+import com.swiftmq.jms.TemporaryQueueImpl;
+import com.swiftmq.jms.smqp.v750.CreateTmpQueueReply;
+import com.swiftmq.jms.smqp.v750.CreateTmpQueueRequest;
+import com.swiftmq.swiftlet.threadpool.AsyncTask;
+import com.swiftmq.swiftlet.threadpool.ThreadPool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Keeps ready-to-use temporary queues per connection, so createTemporaryQueue needs no
+ * round trip. Deleted temporary queues are never handed out again, because replies to the
+ * previous owner may still be in flight. They are deleted on the router in the background,
+ * so delete needs no round trip either. Deleting and refilling is done by a single
+ * housekeeping task.
+ */
+class TemporaryQueuePool {
+    static final int POOL_SIZE = Integer.parseInt(System.getProperty("swiftmq.jms.tmpqueue.pool.size", "0"));
+    static final boolean DEBUG = Boolean.valueOf(System.getProperty("swiftmq.jms.tmpqueue.pool.debug", "false")).booleanValue();
+
+    final ConnectionImpl connection;
+    final int maxSize;
+    final Queue<TemporaryQueueImpl> idle = new ConcurrentLinkedQueue<>();
+    final Queue<String> released = new ConcurrentLinkedQueue<>();
+    final AtomicInteger size = new AtomicInteger();
+    final AtomicBoolean taskRunning = new AtomicBoolean(false);
+    final ThreadPool threadPool = PoolManager.getInstance().getSessionPool();
+    final Housekeeper housekeeper = new Housekeeper();
+    volatile boolean closed = false;
+
+    TemporaryQueuePool(ConnectionImpl connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+    }
+
+    // Returns null if the pool is empty, the caller creates the queue then
+    TemporaryQueueImpl lease(SessionImpl session) {
+        TemporaryQueueImpl tempQueue = idle.poll();
+        if (tempQueue == null) {
+            triggerHousekeeping();
+            return null;
+        }
+        size.decrementAndGet();
+        tempQueue.setCreatingSession(session);
+        if (size.get() <= maxSize / 2)
+            triggerHousekeeping();
+        if (DEBUG) System.out.println(toString() + "/lease: " + tempQueue);
+        return tempQueue;
+    }
+
+    // Returns false if the queue must be deleted on the router by the caller
+    boolean release(String queueName) {
+        if (closed || !(connection.tmpQueues.get(queueName) instanceof TemporaryQueueImpl) || connection.hasReceiverOn(queueName))
+            return false;
+        // Not recreated on reconnect anymore
+        connection.tmpQueues.remove(queueName);
+        released.add(queueName);
+        triggerHousekeeping();
+        if (DEBUG) System.out.println(toString() + "/release: " + queueName);
+        return true;
+    }
+
+    private void triggerHousekeeping() {
+        if (!closed && taskRunning.compareAndSet(false, true))
+            threadPool.dispatchTask(housekeeper);
+    }
+
+    private void fill() throws Exception {
+        while (!closed && size.get() < maxSize) {
+            CreateTmpQueueReply reply = (CreateTmpQueueReply) connection.requestRegistry.request(new CreateTmpQueueRequest());
+            if (!reply.isOk())
+                throw reply.getException();
+            TemporaryQueueImpl tempQueue = new TemporaryQueueImpl(reply.getQueueName(), connection);
+            connection.addTmpQueue(tempQueue);
+            size.incrementAndGet();
+            idle.add(tempQueue);
+            if (DEBUG) System.out.println(toString() + "/fill: " + tempQueue);
+        }
+    }
+
+    void close() {
+        closed = true;
+        idle.clear();
+        released.clear();
+        size.set(0);
+    }
+
+    public String toString() {
+        return "TemporaryQueuePool, size=" + size.get() + "/" + maxSize;
+    }
+
+    private class Housekeeper implements AsyncTask {
+        public boolean isValid() {
+            return !closed;
+        }
+
+        public String getDispatchToken() {
+            return SessionImpl.DISPATCH_TOKEN;
+        }
+
+        public String getDescription() {
+            return connection.myHostname + "/TemporaryQueuePool/Housekeeper";
+        }
+
+        public void run() {
+            try {
+                String queueName;
+                while (!closed && (queueName = released.poll()) != null) {
+                    try {
+                        connection.deleteTempQueueOnRouter(queueName);
+                    } catch (Exception e) {
+                        if (DEBUG) System.out.println(TemporaryQueuePool.this.toString() + "/delete failed: " + queueName + ", " + e);
+                    }
+                }
+                fill();
+            } catch (Exception e) {
+                if (DEBUG) System.out.println(TemporaryQueuePool.this.toString() + "/housekeeping failed: " + e);
+            } finally {
+                taskRunning.set(false);
+            }
+            if (!closed && !released.isEmpty())
+                triggerHousekeeping();
+        }
+
+        public void stop() {
+        }
+    }
+}
@@ -51,7 +51,6 @@ public class TopicConnectionConsumerImpl extends ConnectionConsumerImpl implemen
     public List getRecreatables() {
         List list = new ArrayList();
         list.add(new SessionRecreator());
-        list.add(new ConsumerRecreator());
         return list;
     }
 
@@ -121,7 +120,10 @@ public class TopicConnectionConsumerImpl extends ConnectionConsumerImpl implemen
         }
 
         public List getRecreatables() {
-            return null;
+            // The consumer needs the new session dispatch id
+            List list = new ArrayList();
+            list.add(new ConsumerRecreator());
+            return list;
         }
     }
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.jms.v750;
+
+import jakarta.jms.*;
+
+import javax.transaction.xa.XAResource;
+
+/**
+ * XAJMSContext with a dedicated XAConnection, as XA sessions are enlisted and cannot be pooled.
+ */
+public class XAJMSContextImpl extends JMSContextImpl implements XAJMSContext {
+    final XASessionImpl xaSession;
+
+    XAJMSContextImpl(XAConnectionImpl connection, XASessionImpl xaSession) {
+        super(connection, xaSession.getSessionImpl(), JMSContext.SESSION_TRANSACTED);
+        this.xaSession = xaSession;
+    }
+
+    public JMSContext getContext() {
+        verifyState();
+        return this;
+    }
+
+    public XAResource getXAResource() {
+        verifyState();
+        return xaSession.getXAResource();
+    }
+
+    public JMSContext createContext(int sessionMode) {
+        throw new JMSRuntimeException("createContext is not supported on an XAJMSContext");
+    }
+
+    public boolean getTransacted() {
+        verifyState();
+        return true;
+    }
+
+    public void commit() {
+        verifyState();
+        throw new TransactionInProgressRuntimeException("commit is not allowed on an XAJMSContext");
+    }
+
+    public void rollback() {
+        verifyState();
+        throw new TransactionInProgressRuntimeException("rollback is not allowed on an XAJMSContext");
+    }
+
+    protected void release() {
+        try {
+            connection.close();
+        } catch (JMSException ignored) {
+        }
+    }
+
+    public String toString() {
+        return "/XAJMSContextImpl";
+    }
+}
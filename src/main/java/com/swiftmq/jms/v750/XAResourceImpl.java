@@ -21,6 +21,7 @@ import com.swiftmq.jms.XACompletionListener;
 import com.swiftmq.jms.XAResourceExtended;
 import com.swiftmq.jms.XidImpl;
 import com.swiftmq.jms.smqp.v750.*;
+import com.swiftmq.tools.requestreply.Reply;
 import com.swiftmq.tools.requestreply.Request;
 import com.swiftmq.tools.requestreply.RequestRetryValidator;
 import com.swiftmq.tools.requestreply.ValidationException;
@@ -39,6 +40,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator {
     private static final SimpleDateFormat format = new SimpleDateFormat("yyMMdd:HH:mm:ss.SSS");
+    // Only safe if the transaction manager completes a branch on the resource that ended it
+    static final boolean PIPELINE_END = Boolean.valueOf(System.getProperty("swiftmq.xa.pipeline.end", "false")).booleanValue();
     XASessionImpl session = null;
     Map xidMapping = new HashMap();
     XACompletionListener completionListener = null;
@@ -47,6 +50,7 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
     PrintWriter logWriter = null;
     int lastEndRequestConnectionId = -1;
     boolean neverSameRM = false;
+    XAResEndRequest pendingEnd = null;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     XAResourceImpl(XASessionImpl session) {
@@ -172,6 +176,7 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
         lock.writeLock().lock();
         try {
             if (logWriter != null) log(toString() + "/setTransactionTimeout, seconds=" + seconds);
+            flushPendingEnd();
             XAResSetTxTimeoutReply reply = null;
 
             try {
@@ -216,6 +221,10 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
 
     public boolean isSameRM(XAResource resource) throws XAException {
         if (logWriter != null) log(toString() + "/isSameRM, neverSameRM=" + neverSameRM);
+        flushPendingEndLocked();
+        // The transaction manager may continue the branch on the other resource
+        if (resource instanceof XAResourceImpl && resource != this)
+            ((XAResourceImpl) resource).flushPendingEndLocked();
         if (neverSameRM)
             return false;
         boolean b = false;
@@ -238,6 +247,7 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
                 log(toString() + "/TMONOFLAGS, flag=" + flag + ", nRecoverCalls=" + nRecoverCalls);
             if (nRecoverCalls > 0)
                 return new Xid[0];
+            flushPendingEnd();
             nRecoverCalls++;
             XAResRecoverReply reply = null;
 
@@ -267,6 +277,7 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
         lock.writeLock().lock();
         try {
             if (logWriter != null) log(toString() + "/start, xid=" + xid + ", flags=" + flags);
+            flushPendingEnd();
             XidImpl sxid = toSwiftMQXid(xid);
             XAResStartReply reply = null;
 
@@ -312,12 +323,13 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
         lock.writeLock().lock();
         try {
             if (logWriter != null) log(toString() + "/end, xid=" + xid + ", flags=" + flags);
+            flushPendingEnd();
             XidImpl sxid = toSwiftMQXid(xid);
-            XAResEndReply reply = null;
             XAResEndRequest request = null;
 
             try {
                 int connectionId = session.getSessionImpl().getMyConnection().getConnectionId();
+                session.getSessionImpl().flushDeliveryReports();
                 List content = session.getAndClearCurrentTransaction();
                 if (content != null && content.size() == 0)
                     content = null;
@@ -325,34 +337,84 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
 
                 request.setConnectionId(connectionId);
                 lastEndRequestConnectionId = connectionId;
-                reply = (XAResEndReply) session.request(request);
+                session.requestAsync(request);
             } catch (Exception e) {
                 XAException ex = new XAException(e.toString());
                 ex.errorCode = XAException.XAER_RMFAIL;
                 throw ex;
             }
-            if (!reply.isOk()) {
-                XAException ex = new XAException(reply.getException().getMessage());
-                if (reply.getErrorCode() != 0)
-                    ex.errorCode = reply.getErrorCode();
-                else
-                    ex.errorCode = XAException.XAER_RMFAIL;
-                throw ex;
-            }
-            request.setRecoverRequestList(null);
-            XARecoverRegistry.getInstance().addRequest(sxid, request);
-            if (completionListener != null)
-                completionListener.transactionEnded(sxid);
+            // A successful end is completed together with the following prepare, commit or rollback
+            if (PIPELINE_END && (flags == TMSUCCESS || flags == TMFAIL)) {
+                if (logWriter != null) log(toString() + "/end, xid=" + xid + ", pipelined");
+                pendingEnd = request;
+            } else
+                completeEnd(request);
         } finally {
             lock.writeLock().unlock();
         }
 
     }
 
+    private void completeEnd(XAResEndRequest request) throws XAException {
+        XAResEndReply reply = (XAResEndReply) session.awaitReply(request);
+        if (!reply.isOk()) {
+            XAException ex = new XAException(reply.getException().getMessage());
+            if (reply.getErrorCode() != 0)
+                ex.errorCode = reply.getErrorCode();
+            else
+                ex.errorCode = XAException.XAER_RMFAIL;
+            throw ex;
+        }
+        request.setRecoverRequestList(null);
+        XARecoverRegistry.getInstance().addRequest(request.getXid(), request);
+        if (completionListener != null)
+            completionListener.transactionEnded(request.getXid());
+    }
+
+    void flushPendingEndLocked() throws XAException {
+        lock.writeLock().lock();
+        try {
+            flushPendingEnd();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushPendingEnd() throws XAException {
+        if (pendingEnd != null) {
+            XAResEndRequest request = pendingEnd;
+            pendingEnd = null;
+            completeEnd(request);
+        }
+    }
+
+    // Sends the request right behind a pending end request, then collects both replies.
+    // The router processes both in order, so this saves one round trip.
+    private Reply requestAfterEnd(Request request, boolean ignoreEndFailure) throws Exception {
+        if (pendingEnd == null)
+            return session.request(request);
+        XAResEndRequest endRequest = pendingEnd;
+        pendingEnd = null;
+        session.requestAsync(request);
+        XAException endException = null;
+        try {
+            completeEnd(endRequest);
+        } catch (XAException e) {
+            if (logWriter != null) log(toString() + "/requestAfterEnd, end failed: " + e);
+            if (!ignoreEndFailure)
+                endException = e;
+        }
+        Reply reply = session.awaitReply(request);
+        if (endException != null)
+            throw endException;
+        return reply;
+    }
+
     public void forget(Xid xid) throws XAException {
         lock.writeLock().lock();
         try {
             if (logWriter != null) log(toString() + "/forget, xid=" + xid);
+            flushPendingEnd();
             XidImpl sxid = toSwiftMQXid(xid);
             xidMapping.remove(xid);
             XAResForgetReply reply = null;
@@ -390,9 +452,13 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
 
             try {
                 int connectionId = session.getSessionImpl().getMyConnection().getConnectionId();
+                if (endRequestInDoubt())
+                    flushPendingEnd();
                 Request request = new XAResPrepareRequest(this, session.getDispatchId(), sxid, false, endRequestInDoubt() ? XARecoverRegistry.getInstance().getRequestList(sxid) : null);
                 request.setConnectionId(connectionId);
-                reply = (XAResPrepareReply) session.request(request);
+                reply = (XAResPrepareReply) requestAfterEnd(request, false);
+            } catch (XAException e) {
+                throw e;
             } catch (Exception e) {
                 XAException ex = new XAException(e.toString());
                 ex.errorCode = XAException.XAER_RMFAIL;
@@ -424,12 +490,17 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
 
             try {
                 int connectionId = session.getSessionImpl().getMyConnection().getConnectionId();
+                if (!onePhase || endRequestInDoubt())
+                    flushPendingEnd();
                 XAResCommitRequest req = new XAResCommitRequest(this, session.getDispatchId(), sxid, onePhase, false, onePhase && endRequestInDoubt() ? XARecoverRegistry.getInstance().getRequestList(sxid) : null);
                 req.setConnectionId(connectionId);
-                reply = (XAResCommitReply) session.request(req);
+                // One-phase commit of the only branch: end and commit share a single round trip
+                reply = (XAResCommitReply) requestAfterEnd(req, false);
             } catch (Exception e) {
                 if (completionListener != null)
                     completionListener.transactionCommitted(sxid);
+                if (e instanceof XAException)
+                    throw (XAException) e;
                 XAException ex = new XAException(e.toString());
                 ex.errorCode = XAException.XAER_RMFAIL;
                 throw ex;
@@ -477,17 +548,22 @@ public class XAResourceImpl implements XAResourceExtended, RequestRetryValidator
 
             try {
                 int connectionId = session.getSessionImpl().getMyConnection().getConnectionId();
+                session.getSessionImpl().flushDeliveryReports();
                 session.getSessionImpl().startRecoverConsumers();
                 session.getAndClearCurrentTransaction();
                 List recoveryList = null;
-                if (endRequestInDoubt())
+                if (endRequestInDoubt()) {
+                    flushPendingEnd();
                     recoveryList = XARecoverRegistry.getInstance().getRequestList(sxid);
+                }
                 Request request = new XAResRollbackRequest(this, session.getDispatchId(), sxid, false, recoveryList, session.getSessionImpl().getRecoveryEpoche());
                 request.setConnectionId(connectionId);
-                reply = (XAResRollbackReply) session.request(request);
+                reply = (XAResRollbackReply) requestAfterEnd(request, true);
             } catch (Exception e) {
                 if (completionListener != null)
                     completionListener.transactionAborted(sxid);
+                if (e instanceof XAException)
+                    throw (XAException) e;
                 XAException ex = new XAException(e.toString());
                 ex.errorCode = XAException.XAER_RMFAIL;
                 throw ex;
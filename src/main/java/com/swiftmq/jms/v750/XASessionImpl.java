@@ -17,10 +17,12 @@
 
 package com.swiftmq.jms.v750;
 
+import com.swiftmq.jms.ExceptionConverter;
 import com.swiftmq.tools.requestreply.Reply;
 import com.swiftmq.tools.requestreply.Request;
 
 import jakarta.jms.*;
+import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import java.io.Serializable;
 import java.util.List;
@@ -135,6 +137,11 @@ public class XASessionImpl implements XASession {
     }
 
     public void close() throws JMSException {
+        try {
+            xaRes.flushPendingEndLocked();
+        } catch (XAException e) {
+            throw ExceptionConverter.convert(e);
+        }
         session.close();
     }
 
@@ -209,4 +216,12 @@ public class XASessionImpl implements XASession {
     Reply request(Request request) throws Exception {
         return session.requestBlockable(request);
     }
+
+    void requestAsync(Request request) throws Exception {
+        session.requestBlockableAsync(request);
+    }
+
+    Reply awaitReply(Request request) {
+        return session.awaitReply(request);
+    }
 }
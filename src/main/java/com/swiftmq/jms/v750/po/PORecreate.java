@@ -15,6 +15,7 @@
  *
  */
 
+
 package com.swiftmq.jms.v750.po;
 
 import com.swiftmq.jms.v750.Recreatable;
@@ -23,23 +24,25 @@ import com.swiftmq.tools.pipeline.POObject;
 import com.swiftmq.tools.pipeline.POVisitor;
 import com.swiftmq.tools.requestreply.Request;
 
+import java.util.List;
+
 
 public class PORecreate extends POObject {
-    Recreatable recreatable = null;
-    Request request = null;
+    List<Recreatable> recreatables = null;
+    List<Request> requests = null;
 
-    public PORecreate(Semaphore semaphore, Recreatable recreatable, Request request) {
+    public PORecreate(Semaphore semaphore, List<Recreatable> recreatables, List<Request> requests) {
         super(null, semaphore);
-        this.recreatable = recreatable;
-        this.request = request;
+        this.recreatables = recreatables;
+        this.requests = requests;
     }
 
-    public Recreatable getRecreatable() {
-        return recreatable;
+    public List<Recreatable> getRecreatables() {
+        return recreatables;
     }
 
-    public Request getRequest() {
-        return request;
+    public List<Request> getRequests() {
+        return requests;
     }
 
     public void accept(POVisitor visitor) {
@@ -47,6 +50,6 @@ public class PORecreate extends POObject {
     }
 
     public String toString() {
-        return "[PORecreate, recreatable=" + recreatable + ", request=" + request + "]";
+        return "[PORecreate, recreatables=" + recreatables + ", requests=" + requests + "]";
     }
 }
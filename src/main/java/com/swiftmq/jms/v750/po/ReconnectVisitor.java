@@ -34,12 +34,6 @@ public interface ReconnectVisitor extends POVisitor {
 
     public void visit(POAuthenticateResponse po);
 
-    public void visit(POMetaDataRequest po);
-
-    public void visit(POGetClientIdRequest po);
-
-    public void visit(POSetClientIdRequest po);
-
     public void visit(PORecreate po);
 
     public void visit(POHandover po);
@@ -336,6 +336,18 @@ public class XMLUtilities {
         writer.close();
     }
 
+    public static void writeDocumentSynced(Document document, File file) throws Exception {
+        OutputFormat format = OutputFormat.createPrettyPrint();
+        format.setLineSeparator(System.getProperty("line.separator"));
+        format.setNewlines(true);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            XMLWriter writer = new MyXMLWriter(new OutputStreamWriter(out), format);
+            writer.write(document);
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+
     public static void writeDocument(Document document, StringWriter stringWriter) throws Exception {
         // Pretty print the document to System.out
         OutputFormat format = OutputFormat.createPrettyPrint();
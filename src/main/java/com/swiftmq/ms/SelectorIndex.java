@@ -0,0 +1,328 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.ms;
+
+import com.swiftmq.jms.MessageImpl;
+import com.swiftmq.ms.artemis.filter.*;
+import com.swiftmq.ms.artemis.impl.SelectorParser;
+import com.swiftmq.ms.artemis.util.SimpleString;
+
+import jakarta.jms.InvalidSelectorException;
+import java.util.*;
+
+/**
+ * Matches a message against many selectors at once.
+ * <p>
+ * Each selector is decomposed into its top-level AND terms. One term of the form
+ * <tt>prop = constant</tt> or <tt>prop IN (...)</tt> is used as hash index key, otherwise
+ * a numeric range term (<tt>&lt;, &lt;=, &gt;, &gt;=, BETWEEN</tt>) is put into a sorted index.
+ * Selectors without such a term are evaluated for every message. Candidates from the
+ * indexes are always verified against the full selector, so the result is identical to
+ * evaluating each selector on its own, including SQL NULL semantics.
+ * <p>
+ * The index is thread safe.
+ *
+ * @param <K> type of the subscriber id
+ */
+public class SelectorIndex<K> {
+    private static final int KIND_NONE = 0;
+    private static final int KIND_EQUALS = 1;
+    private static final int KIND_LOWER = 2;
+    private static final int KIND_UPPER = 3;
+
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final Map<String, Map<Object, Set<K>>> equalsIndex = new HashMap<>();
+    private final Map<String, NavigableMap<Double, Set<K>>> lowerIndex = new HashMap<>();
+    private final Map<String, NavigableMap<Double, Set<K>>> upperIndex = new HashMap<>();
+    private final Set<K> unindexed = new LinkedHashSet<>();
+
+    /**
+     * Adds a subscriber with a selector. A null or empty selector matches all messages.
+     * An existing subscriber with the same id is replaced.
+     *
+     * @param id       subscriber id
+     * @param selector selector string
+     * @throws InvalidSelectorException if the selector is invalid
+     */
+    public void add(K id, String selector) throws InvalidSelectorException {
+        BooleanExpression expression = null;
+        if (selector != null && selector.trim().length() > 0) {
+            try {
+                expression = SelectorParser.parse(selector);
+            } catch (Throwable t) {
+                String s = t.getMessage();
+                if (s == null || s.length() == 0)
+                    s = "Invalid selector";
+                throw new InvalidSelectorException("<" + selector + ">: " + s);
+            }
+        }
+        add(id, expression);
+    }
+
+    /**
+     * Adds a subscriber with a parsed selector. A null expression matches all messages.
+     * An existing subscriber with the same id is replaced.
+     *
+     * @param id         subscriber id
+     * @param expression selector expression
+     */
+    public synchronized void add(K id, BooleanExpression expression) {
+        remove(id);
+        Entry<K> entry = new Entry<>(id, expression);
+        if (expression != null) {
+            List<BooleanExpression> terms = new ArrayList<>();
+            collectTerms(expression, terms);
+            for (int i = 0; i < terms.size() && entry.kind != KIND_EQUALS; i++)
+                classify(terms.get(i), entry);
+        }
+        entries.put(id, entry);
+        switch (entry.kind) {
+            case KIND_EQUALS:
+                Map<Object, Set<K>> byValue = equalsIndex.computeIfAbsent(entry.property, k -> new HashMap<>());
+                for (Object key : entry.keys)
+                    byValue.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+                break;
+            case KIND_LOWER:
+                lowerIndex.computeIfAbsent(entry.property, k -> new TreeMap<>()).computeIfAbsent(entry.bound, k -> new HashSet<>()).add(id);
+                break;
+            case KIND_UPPER:
+                upperIndex.computeIfAbsent(entry.property, k -> new TreeMap<>()).computeIfAbsent(entry.bound, k -> new HashSet<>()).add(id);
+                break;
+            default:
+                unindexed.add(id);
+                break;
+        }
+    }
+
+    /**
+     * Removes a subscriber.
+     *
+     * @param id subscriber id
+     * @return true if the subscriber was registered
+     */
+    public synchronized boolean remove(K id) {
+        Entry<K> entry = entries.remove(id);
+        if (entry == null)
+            return false;
+        switch (entry.kind) {
+            case KIND_EQUALS:
+                Map<Object, Set<K>> byValue = equalsIndex.get(entry.property);
+                for (Object key : entry.keys)
+                    removeFrom(byValue, key, id);
+                if (byValue.isEmpty())
+                    equalsIndex.remove(entry.property);
+                break;
+            case KIND_LOWER:
+                removeRange(lowerIndex, entry, id);
+                break;
+            case KIND_UPPER:
+                removeRange(upperIndex, entry, id);
+                break;
+            default:
+                unindexed.remove(id);
+                break;
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the ids of all subscribers whose selector matches the message.
+     *
+     * @param message message
+     * @return matching subscriber ids
+     */
+    public synchronized Set<K> match(MessageImpl message) {
+        Set<K> result = new LinkedHashSet<>();
+        MessageFilterable filterable = new MessageFilterable(message);
+        for (Map.Entry<String, Map<Object, Set<K>>> e : equalsIndex.entrySet()) {
+            Object value = message.getField(e.getKey());
+            if (value == null)
+                continue;
+            Set<K> ids = e.getValue().get(normalize(value));
+            if (ids != null)
+                verify(ids, filterable, result);
+        }
+        for (Map.Entry<String, NavigableMap<Double, Set<K>>> e : lowerIndex.entrySet()) {
+            Object value = message.getField(e.getKey());
+            if (value instanceof Number) {
+                for (Set<K> ids : e.getValue().headMap(((Number) value).doubleValue(), true).values())
+                    verify(ids, filterable, result);
+            }
+        }
+        for (Map.Entry<String, NavigableMap<Double, Set<K>>> e : upperIndex.entrySet()) {
+            Object value = message.getField(e.getKey());
+            if (value instanceof Number) {
+                for (Set<K> ids : e.getValue().tailMap(((Number) value).doubleValue(), true).values())
+                    verify(ids, filterable, result);
+            }
+        }
+        verify(unindexed, filterable, result);
+        return result;
+    }
+
+    private void verify(Set<K> ids, MessageFilterable filterable, Set<K> result) {
+        for (K id : ids) {
+            Entry<K> entry = entries.get(id);
+            if (entry.expression == null) {
+                result.add(id);
+                continue;
+            }
+            try {
+                if (entry.expression.matches(filterable))
+                    result.add(id);
+            } catch (FilterException e) {
+            }
+        }
+    }
+
+    private void removeRange(Map<String, NavigableMap<Double, Set<K>>> index, Entry<K> entry, K id) {
+        NavigableMap<Double, Set<K>> byBound = index.get(entry.property);
+        removeFrom(byBound, entry.bound, id);
+        if (byBound.isEmpty())
+            index.remove(entry.property);
+    }
+
+    private static <V, K> void removeFrom(Map<V, Set<K>> map, V key, K id) {
+        Set<K> ids = map.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty())
+                map.remove(key);
+        }
+    }
+
+    private static void collectTerms(BooleanExpression expression, List<BooleanExpression> terms) {
+        if (expression instanceof LogicExpression && "AND".equals(((LogicExpression) expression).getExpressionSymbol())) {
+            LogicExpression and = (LogicExpression) expression;
+            collectTerms((BooleanExpression) and.getLeft(), terms);
+            collectTerms((BooleanExpression) and.getRight(), terms);
+        } else
+            terms.add(expression);
+    }
+
+    private static void classify(BooleanExpression term, Entry<?> entry) {
+        if (term instanceof UnaryExpression.InExpression) {
+            UnaryExpression.InExpression in = (UnaryExpression.InExpression) term;
+            if (in.isNot())
+                return;
+            // IN only matches String values
+            List<Object> keys = new ArrayList<>();
+            for (Object element : in.getElements()) {
+                if (element instanceof String)
+                    keys.add(element);
+            }
+            entry.index(KIND_EQUALS, in.getProperty().getName(), keys, null);
+            return;
+        }
+        if (!(term instanceof ComparisonExpression))
+            return;
+        ComparisonExpression cmp = (ComparisonExpression) term;
+        if (cmp.isConvertStringExpressions())
+            return;
+        String symbol = cmp.getExpressionSymbol();
+        boolean reversed = false;
+        Expression prop = cmp.getLeft();
+        Expression value = cmp.getRight();
+        if (prop instanceof ConstantExpression && value instanceof PropertyExpression) {
+            prop = cmp.getRight();
+            value = cmp.getLeft();
+            reversed = true;
+        }
+        if (!(prop instanceof PropertyExpression) || !(value instanceof ConstantExpression))
+            return;
+        String name = ((PropertyExpression) prop).getName();
+        Object constant = ((ConstantExpression) value).getValue();
+        if (constant == null)
+            return;
+        switch (symbol) {
+            case "=":
+                Object key = normalize(constant);
+                if (key != null)
+                    entry.index(KIND_EQUALS, name, Collections.singletonList(key), null);
+                break;
+            case ">":
+            case ">=":
+                if (entry.kind == KIND_NONE && constant instanceof Number)
+                    entry.index(reversed ? KIND_UPPER : KIND_LOWER, name, null, ((Number) constant).doubleValue());
+                break;
+            case "<":
+            case "<=":
+                if (entry.kind == KIND_NONE && constant instanceof Number)
+                    entry.index(reversed ? KIND_LOWER : KIND_UPPER, name, null, ((Number) constant).doubleValue());
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Message fields are numerically compared as double, see MessageImpl.getField
+    private static Object normalize(Object value) {
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        if (value instanceof String || value instanceof Boolean)
+            return value;
+        return null;
+    }
+
+    private static class Entry<K> {
+        final K id;
+        final BooleanExpression expression;
+        int kind = KIND_NONE;
+        String property = null;
+        Collection<Object> keys = null;
+        Double bound = null;
+
+        Entry(K id, BooleanExpression expression) {
+            this.id = id;
+            this.expression = expression;
+        }
+
+        void index(int kind, String property, Collection<Object> keys, Double bound) {
+            this.kind = kind;
+            this.property = property;
+            this.keys = keys;
+            this.bound = bound;
+        }
+    }
+
+    private static class MessageFilterable implements Filterable {
+        final MessageImpl message;
+
+        MessageFilterable(MessageImpl message) {
+            this.message = message;
+        }
+
+        @Override
+        public <T> T getBodyAs(Class<T> aClass) throws FilterException {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(SimpleString name) {
+            return message.getField(name.toString());
+        }
+
+        @Override
+        public Object getLocalConnectionId() {
+            return null;
+        }
+    }
+}
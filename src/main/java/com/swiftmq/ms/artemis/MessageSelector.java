@@ -21,6 +21,7 @@ import com.swiftmq.jms.MessageImpl;
 import com.swiftmq.ms.artemis.filter.BooleanExpression;
 import com.swiftmq.ms.artemis.filter.FilterException;
 import com.swiftmq.ms.artemis.filter.Filterable;
+import com.swiftmq.ms.artemis.impl.SelectorCompiler;
 import com.swiftmq.ms.artemis.impl.SelectorParser;
 import com.swiftmq.ms.artemis.util.SimpleString;
 import com.swiftmq.swiftlet.queue.Selector;
@@ -28,8 +29,10 @@ import com.swiftmq.swiftlet.queue.Selector;
 import jakarta.jms.InvalidSelectorException;
 
 public class MessageSelector implements Selector, Filterable {
+    static final boolean COMPILE = Boolean.valueOf(System.getProperty("swiftmq.selector.compile", "true")).booleanValue();
     String conditionString;
     MessageImpl current;
+    SelectorCompiler.CompiledSelector compiled = null;
 
     public MessageSelector(String conditionString) {
         this.conditionString = conditionString;
@@ -55,13 +58,17 @@ public class MessageSelector implements Selector, Filterable {
     public boolean isSelected(MessageImpl message) {
         this.current = message;
         try {
-            BooleanExpression selector = SelectorParser.parse(conditionString);
-            if (selector != null)
-                return selector.matches(this);
+            // Parsed and compiled on first use
+            if (compiled == null) {
+                BooleanExpression selector = SelectorParser.parse(conditionString);
+                if (selector == null)
+                    return false;
+                compiled = COMPILE ? SelectorCompiler.compile(selector) : SelectorCompiler.interpret(selector);
+            }
+            return compiled.matches(message, this);
         } catch (FilterException e) {
             return false;
         }
-        return false;
     }
 
     @Override
@@ -42,6 +42,10 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
         convertStringExpressions = CONVERT_STRING_EXPRESSIONS.get() != null;
     }
 
+    public boolean isConvertStringExpressions() {
+        return convertStringExpressions;
+    }
+
     public static BooleanExpression createBetween(Expression value, Expression left, Expression right) {
         return LogicExpression.createAND(createGreaterThanEqual(value, left), createLessThanEqual(value, right));
     }
@@ -60,60 +60,79 @@ public abstract class UnaryExpression implements Expression {
     public static BooleanExpression createInExpression(PropertyExpression right,
                                                        List<Object> elements,
                                                        final boolean not) {
+        return new InExpression(right, elements, not);
+    }
 
-        // Use a HashSet if there are many elements.
-        final Collection<Object> inList;
-        if (elements.size() < 5) {
-            inList = elements;
-        } else {
-            inList = new HashSet<>(elements);
+    public static class InExpression extends BooleanUnaryExpression {
+        private final Collection<Object> inList;
+        private final boolean not;
+
+        InExpression(PropertyExpression right, List<Object> elements, boolean not) {
+            super(right);
+            this.not = not;
+            // Use a HashSet if there are many elements.
+            if (elements.size() < 5) {
+                inList = elements;
+            } else {
+                inList = new HashSet<>(elements);
+            }
         }
 
-        return new BooleanUnaryExpression(right) {
-            @Override
-            public Object evaluate(Filterable message) throws FilterException {
+        public PropertyExpression getProperty() {
+            return (PropertyExpression) right;
+        }
 
-                Object rvalue = right.evaluate(message);
-                if (rvalue == null) {
-                    return null;
-                }
-                if (rvalue.getClass() != String.class) {
-                    return null;
-                }
+        public Collection<Object> getElements() {
+            return inList;
+        }
 
-                return inList.contains(rvalue) ^ not;
-            }
+        public boolean isNot() {
+            return not;
+        }
 
-            @Override
-            public String toString() {
-                StringBuffer answer = new StringBuffer();
-                answer.append(right);
-                answer.append(" ");
-                answer.append(getExpressionSymbol());
-                answer.append(" ( ");
-
-                int count = 0;
-                for (Object o : inList) {
-                    if (count != 0) {
-                        answer.append(", ");
-                    }
-                    answer.append(o);
-                    count++;
-                }
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
 
-                answer.append(" )");
-                return answer.toString();
+            Object rvalue = right.evaluate(message);
+            if (rvalue == null) {
+                return null;
+            }
+            if (rvalue.getClass() != String.class) {
+                return null;
             }
 
-            @Override
-            public String getExpressionSymbol() {
-                if (not) {
-                    return "NOT IN";
-                } else {
-                    return "IN";
+            return inList.contains(rvalue) ^ not;
+        }
+
+        @Override
+        public String toString() {
+            StringBuffer answer = new StringBuffer();
+            answer.append(right);
+            answer.append(" ");
+            answer.append(getExpressionSymbol());
+            answer.append(" ( ");
+
+            int count = 0;
+            for (Object o : inList) {
+                if (count != 0) {
+                    answer.append(", ");
                 }
+                answer.append(o);
+                count++;
             }
-        };
+
+            answer.append(" )");
+            return answer.toString();
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            if (not) {
+                return "NOT IN";
+            } else {
+                return "IN";
+            }
+        }
     }
 
     abstract static class BooleanUnaryExpression extends UnaryExpression implements BooleanExpression {
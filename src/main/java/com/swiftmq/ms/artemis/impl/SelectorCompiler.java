@@ -0,0 +1,484 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.ms.artemis.impl;
+
+import com.swiftmq.jms.MessageImpl;
+import com.swiftmq.ms.artemis.filter.*;
+
+import jakarta.jms.JMSException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compiles a parsed selector into a tree of specialized evaluators.
+ * <p>
+ * Logical operators work on int truth values instead of Boolean objects, and comparisons of a
+ * property with a numeric, string or boolean constant read the property directly from the
+ * MessageImpl and compare primitive doubles. Every evaluator follows the interpreted filter
+ * classes step by step, including their three-valued NULL handling. Terms which cannot be
+ * specialized, and property values of unexpected types, are delegated to the interpreted
+ * expression, so results are always identical.
+ */
+public class SelectorCompiler {
+    static final int UNKNOWN = -1;
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    // A true value which is not Boolean.TRUE; matches() compares by identity
+    static final int TRUE_OTHER = 2;
+
+    private static final int OP_EQ = 0;
+    private static final int OP_GT = 1;
+    private static final int OP_GE = 2;
+    private static final int OP_LT = 3;
+    private static final int OP_LE = 4;
+
+    /**
+     * Compiles a selector expression.
+     *
+     * @param expression parsed selector
+     * @return compiled selector
+     */
+    public static CompiledSelector compile(BooleanExpression expression) {
+        Node node = compileNode(expression);
+        if (node instanceof Interpreted)
+            return new InterpretedSelector(expression);
+        return new NodeSelector(node);
+    }
+
+    /**
+     * Returns a selector which evaluates the expression without compilation.
+     *
+     * @param expression parsed selector
+     * @return interpreting selector
+     */
+    public static CompiledSelector interpret(BooleanExpression expression) {
+        return new InterpretedSelector(expression);
+    }
+
+    private static Node compileNode(BooleanExpression expression) {
+        if (expression instanceof LogicExpression) {
+            LogicExpression logic = (LogicExpression) expression;
+            Node left = compileNode((BooleanExpression) logic.getLeft());
+            Node right = compileNode((BooleanExpression) logic.getRight());
+            switch (logic.getExpressionSymbol()) {
+                case "AND":
+                    return new And(left, right);
+                case "OR":
+                    return new Or(left, right);
+                default:
+                    return new Interpreted(expression);
+            }
+        }
+        if (expression instanceof UnaryExpression.InExpression) {
+            UnaryExpression.InExpression in = (UnaryExpression.InExpression) expression;
+            return new In(createField(in.getProperty().getName()), new HashSet<>(in.getElements()), in.isNot());
+        }
+        if (expression instanceof UnaryExpression && "NOT".equals(((UnaryExpression) expression).getExpressionSymbol())) {
+            Expression right = ((UnaryExpression) expression).getRight();
+            if (right instanceof BooleanExpression)
+                return new Not(compileNode((BooleanExpression) right));
+        }
+        if (expression instanceof ComparisonExpression)
+            return compileComparison((ComparisonExpression) expression);
+        return new Interpreted(expression);
+    }
+
+    private static Node compileComparison(ComparisonExpression cmp) {
+        if (cmp.isConvertStringExpressions())
+            return new Interpreted(cmp);
+        int op;
+        switch (cmp.getExpressionSymbol()) {
+            case "=":
+                op = OP_EQ;
+                break;
+            case ">":
+                op = OP_GT;
+                break;
+            case ">=":
+                op = OP_GE;
+                break;
+            case "<":
+                op = OP_LT;
+                break;
+            case "<=":
+                op = OP_LE;
+                break;
+            default:
+                return new Interpreted(cmp);
+        }
+        boolean reversed = false;
+        Expression prop = cmp.getLeft();
+        Expression value = cmp.getRight();
+        if (!isProperty(prop)) {
+            prop = cmp.getRight();
+            value = cmp.getLeft();
+            reversed = true;
+        }
+        if (!isProperty(prop) || !isConstant(value))
+            return new Interpreted(cmp);
+        Object constant;
+        try {
+            constant = value.evaluate(null);
+        } catch (Exception e) {
+            return new Interpreted(cmp);
+        }
+        Field field = createField(((PropertyExpression) prop).getName());
+        if (constant == null)
+            return op == OP_EQ ? new IsNull(field) : new Interpreted(cmp);
+        Class<?> c = constant.getClass();
+        if (c == Integer.class || c == Long.class || c == Float.class || c == Double.class)
+            return new NumericCompare(field, ((Number) constant).doubleValue(), op, reversed, cmp);
+        if (op == OP_EQ && (c == String.class || c == Boolean.class))
+            return new ObjectEquals(field, constant, cmp);
+        return new Interpreted(cmp);
+    }
+
+    private static boolean isProperty(Expression expression) {
+        return expression != null && expression.getClass() == PropertyExpression.class;
+    }
+
+    // Constants and negated constants, both evaluate without a message
+    private static boolean isConstant(Expression expression) {
+        if (expression instanceof ConstantExpression)
+            return true;
+        if (expression instanceof UnaryExpression && "-".equals(((UnaryExpression) expression).getExpressionSymbol()))
+            return isConstant(((UnaryExpression) expression).getRight());
+        return false;
+    }
+
+    private static Field createField(String name) {
+        switch (name) {
+            case "JMSPriority":
+                return new PriorityField();
+            case "JMSTimestamp":
+                return new TimestampField();
+            case "JMSMessageID":
+            case "JMSCorrelationID":
+            case "JMSDeliveryMode":
+            case "JMSType":
+            case "JMSDestination":
+                return new HeaderField(name);
+            default:
+                return new PropertyField(name);
+        }
+    }
+
+    private static int toTruth(Object value) {
+        Boolean b = (Boolean) value;
+        if (b == null)
+            return UNKNOWN;
+        if (b == Boolean.TRUE)
+            return TRUE;
+        return b.booleanValue() ? TRUE_OTHER : FALSE;
+    }
+
+    /**
+     * A compiled selector.
+     */
+    public abstract static class CompiledSelector {
+        /**
+         * Evaluates the selector.
+         *
+         * @param message    message
+         * @param filterable the same message as Filterable, used for interpreted terms
+         * @return true if the message is selected
+         * @throws FilterException on evaluation error
+         */
+        public abstract boolean matches(MessageImpl message, Filterable filterable) throws FilterException;
+    }
+
+    private static class InterpretedSelector extends CompiledSelector {
+        final BooleanExpression expression;
+
+        InterpretedSelector(BooleanExpression expression) {
+            this.expression = expression;
+        }
+
+        public boolean matches(MessageImpl message, Filterable filterable) throws FilterException {
+            return expression.matches(filterable);
+        }
+    }
+
+    private static class NodeSelector extends CompiledSelector {
+        final Node root;
+
+        NodeSelector(Node root) {
+            this.root = root;
+        }
+
+        public boolean matches(MessageImpl message, Filterable filterable) throws FilterException {
+            return root.eval(message, filterable) == TRUE;
+        }
+    }
+
+    private abstract static class Node {
+        abstract int eval(MessageImpl message, Filterable filterable) throws FilterException;
+    }
+
+    private static final class Interpreted extends Node {
+        final BooleanExpression expression;
+
+        Interpreted(BooleanExpression expression) {
+            this.expression = expression;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            return toTruth(expression.evaluate(filterable));
+        }
+    }
+
+    private static final class And extends Node {
+        final Node left;
+        final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            int lv = left.eval(message, filterable);
+            if (lv == UNKNOWN)
+                return UNKNOWN;
+            if (lv == FALSE)
+                return FALSE;
+            return right.eval(message, filterable);
+        }
+    }
+
+    private static final class Or extends Node {
+        final Node left;
+        final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            int lv = left.eval(message, filterable);
+            if (lv == TRUE || lv == TRUE_OTHER)
+                return TRUE;
+            return right.eval(message, filterable);
+        }
+    }
+
+    private static final class Not extends Node {
+        final Node node;
+
+        Not(Node node) {
+            this.node = node;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            int v = node.eval(message, filterable);
+            if (v == UNKNOWN)
+                return UNKNOWN;
+            return v == FALSE ? TRUE : FALSE;
+        }
+    }
+
+    private static final class IsNull extends Node {
+        final Field field;
+
+        IsNull(Field field) {
+            this.field = field;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) {
+            if (field.isPrimitive())
+                return FALSE;
+            return field.get(message) == null ? TRUE : FALSE;
+        }
+    }
+
+    private static final class In extends Node {
+        final Field field;
+        final Set<Object> elements;
+        final boolean not;
+
+        In(Field field, Set<Object> elements, boolean not) {
+            this.field = field;
+            this.elements = elements;
+            this.not = not;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) {
+            if (field.isPrimitive())
+                return UNKNOWN;
+            Object value = field.get(message);
+            if (!(value instanceof String))
+                return UNKNOWN;
+            return elements.contains(value) ^ not ? TRUE : FALSE;
+        }
+    }
+
+    private static final class NumericCompare extends Node {
+        final Field field;
+        final double constant;
+        final int op;
+        final boolean reversed;
+        final ComparisonExpression interpreted;
+
+        NumericCompare(Field field, double constant, int op, boolean reversed, ComparisonExpression interpreted) {
+            this.field = field;
+            this.constant = constant;
+            this.op = op;
+            this.reversed = reversed;
+            this.interpreted = interpreted;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            double d;
+            if (field.isPrimitive())
+                d = field.getDouble(message);
+            else {
+                Object value = field.get(message);
+                if (value == null)
+                    return op == OP_EQ ? FALSE : UNKNOWN;
+                if (value instanceof Number)
+                    d = ((Number) value).doubleValue();
+                else if (value instanceof String || value instanceof Boolean)
+                    return FALSE;
+                else
+                    return toTruth(interpreted.evaluate(filterable));
+            }
+            int c = reversed ? Double.compare(constant, d) : Double.compare(d, constant);
+            boolean b;
+            switch (op) {
+                case OP_EQ:
+                    b = c == 0;
+                    break;
+                case OP_GT:
+                    b = c > 0;
+                    break;
+                case OP_GE:
+                    b = c >= 0;
+                    break;
+                case OP_LT:
+                    b = c < 0;
+                    break;
+                default:
+                    b = c <= 0;
+                    break;
+            }
+            return b ? TRUE : FALSE;
+        }
+    }
+
+    private static final class ObjectEquals extends Node {
+        final Field field;
+        final Object constant;
+        final ComparisonExpression interpreted;
+
+        ObjectEquals(Field field, Object constant, ComparisonExpression interpreted) {
+            this.field = field;
+            this.constant = constant;
+            this.interpreted = interpreted;
+        }
+
+        int eval(MessageImpl message, Filterable filterable) throws FilterException {
+            if (field.isPrimitive())
+                return FALSE;
+            Object value = field.get(message);
+            if (value == null)
+                return FALSE;
+            if (value instanceof String || value instanceof Boolean)
+                return constant.equals(value) ? TRUE : FALSE;
+            if (value instanceof Number)
+                return FALSE;
+            return toTruth(interpreted.evaluate(filterable));
+        }
+    }
+
+    // Reads a selector field like MessageImpl.getField but without converting numbers to Double
+    private abstract static class Field {
+        boolean isPrimitive() {
+            return false;
+        }
+
+        double getDouble(MessageImpl message) {
+            throw new UnsupportedOperationException();
+        }
+
+        abstract Object get(MessageImpl message);
+    }
+
+    private static final class PriorityField extends Field {
+        boolean isPrimitive() {
+            return true;
+        }
+
+        double getDouble(MessageImpl message) {
+            try {
+                return message.getJMSPriority();
+            } catch (JMSException e) {
+                return 0;
+            }
+        }
+
+        Object get(MessageImpl message) {
+            return getDouble(message);
+        }
+    }
+
+    private static final class TimestampField extends Field {
+        boolean isPrimitive() {
+            return true;
+        }
+
+        double getDouble(MessageImpl message) {
+            try {
+                return message.getJMSTimestamp();
+            } catch (JMSException e) {
+                return 0;
+            }
+        }
+
+        Object get(MessageImpl message) {
+            return getDouble(message);
+        }
+    }
+
+    private static final class HeaderField extends Field {
+        final String name;
+
+        HeaderField(String name) {
+            this.name = name;
+        }
+
+        Object get(MessageImpl message) {
+            return message.getField(name);
+        }
+    }
+
+    private static final class PropertyField extends Field {
+        final String name;
+
+        PropertyField(String name) {
+            this.name = name;
+        }
+
+        Object get(MessageImpl message) {
+            try {
+                return message.getObjectProperty(name);
+            } catch (JMSException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -106,6 +106,7 @@ public class BlockingConnection extends Thread
         inputHandler.createInputBuffer(inputBufferSize, inputExtendSize);
         inputHandler.setChunkListener(this);
         dis = new DataByteArrayInputStream();
+        dis.setSliceable(inputHandler instanceof SMQPInputHandler);
         socketIn = socket.getInputStream();
         socketOut = socket.getOutputStream();
         try {
@@ -137,6 +138,8 @@ public class BlockingConnection extends Thread
         try {
             dis.setBuffer(b, offset, len);
             inboundHandler.dataAvailable(dis);
+            if (dis.isSliced())
+                ((SMQPInputHandler) inputHandler).detachBuffer();
         } finally {
             lock.writeLock().unlock();
         }
@@ -15,21 +15,11 @@
  *
  */
 
-package com.swiftmq.jms.v750.po;
 
-import com.swiftmq.tools.pipeline.POObject;
-import com.swiftmq.tools.pipeline.POVisitor;
+package com.swiftmq.net.client;
 
-public class POMetaDataRequest extends POObject {
-    public POMetaDataRequest() {
-        super(null, null);
-    }
+import com.swiftmq.tools.dump.Dumpable;
 
-    public void accept(POVisitor visitor) {
-        ((ReconnectVisitor) visitor).visit(this);
-    }
-
-    public String toString() {
-        return "[POMetaDataRequest]";
-    }
+public interface DumpableInboundHandler extends InboundHandler {
+    public void dumpableAvailable(Dumpable obj);
 }
@@ -18,7 +18,10 @@
 package com.swiftmq.net.client;
 
 import com.swiftmq.net.protocol.ChunkListener;
+import com.swiftmq.swiftlet.net.IntraVMObjectServerEndpoint;
 import com.swiftmq.swiftlet.net.IntraVMServerEndpoint;
+import com.swiftmq.tools.dump.Dumpable;
+import com.swiftmq.tools.dump.Dumpalizer;
 import com.swiftmq.tools.util.DataByteArrayInputStream;
 import com.swiftmq.tools.util.DataByteArrayOutputStream;
 
@@ -38,6 +41,7 @@ public class IntraVMConnection implements Connection, ChunkListener {
     String myHostname = null;
     boolean closed = false;
     AtomicBoolean inputActiveIndicator = null;
+    boolean objectPassing = false;
 
     public IntraVMConnection() {
         dis = new DataByteArrayInputStream();
@@ -65,11 +69,47 @@ public class IntraVMConnection implements Connection, ChunkListener {
         this.inputActiveIndicator = inputActiveIndicator;
     }
 
+    public void setObjectPassing(boolean objectPassing) {
+        this.objectPassing = objectPassing;
+    }
+
+    /**
+     * Returns whether Dumpables are passed by reference. Requires that object passing is
+     * enabled and that the endpoint of the router supports it.
+     *
+     * @return true/false
+     */
+    public boolean isObjectPassing() {
+        return objectPassing && endpoint instanceof IntraVMObjectServerEndpoint;
+    }
+
+    public void writeDumpable(Dumpable obj) throws IOException {
+        if (closed || endpoint.isClosed())
+            throw new IOException("Connection is closed");
+        ((IntraVMObjectServerEndpoint) endpoint).dumpableCompleted(obj);
+    }
+
     public void chunkCompleted(byte[] b, int offset, int len) {
         dis.setBuffer(b, offset, len);
         inboundHandler.dataAvailable(dis);
     }
 
+    public void dumpableCompleted(Dumpable obj) {
+        if (inboundHandler instanceof DumpableInboundHandler)
+            ((DumpableInboundHandler) inboundHandler).dumpableAvailable(obj);
+        else {
+            DataByteArrayOutputStream dos = new DataByteArrayOutputStream();
+            try {
+                Dumpalizer.dump(dos, obj);
+            } catch (IOException e) {
+                if (exceptionHandler != null)
+                    exceptionHandler.onException(e);
+                return;
+            }
+            chunkCompleted(dos.getBuffer(), 0, dos.getCount());
+        }
+    }
+
     public void setInboundHandler(InboundHandler inboundHandler) {
         this.inboundHandler = inboundHandler;
     }
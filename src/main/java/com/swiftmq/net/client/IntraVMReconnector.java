@@ -17,6 +17,7 @@
 
 package com.swiftmq.net.client;
 
+import com.swiftmq.jms.SwiftMQConnectionFactory;
 import com.swiftmq.swiftlet.SwiftletManager;
 import com.swiftmq.swiftlet.net.NetworkSwiftlet;
 
@@ -36,6 +37,8 @@ public class IntraVMReconnector extends Reconnector {
         Connection connection = null;
         try {
             connection = new IntraVMConnection();
+            if (parameters != null && parameters.get(SwiftMQConnectionFactory.INTRAVM_OBJECT_PASSING) != null)
+                ((IntraVMConnection) connection).setObjectPassing((Boolean) parameters.get(SwiftMQConnectionFactory.INTRAVM_OBJECT_PASSING));
             NetworkSwiftlet networkSwiftlet = (NetworkSwiftlet) SwiftletManager.getInstance().getSwiftlet("sys$net");
             networkSwiftlet.connectIntraVMListener("sys$jms", (IntraVMConnection) connection);
         } catch (Exception e) {
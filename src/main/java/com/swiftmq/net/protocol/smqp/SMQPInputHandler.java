@@ -37,6 +37,7 @@ public class SMQPInputHandler implements ProtocolInputHandler {
     boolean lengthComplete = false;
     int lengthByteCount = 0;
     int chunkLength = 0;
+    boolean bufferDetached = false;
 
     public ProtocolInputHandler create() {
         return new SMQPInputHandler();
@@ -58,6 +59,11 @@ public class SMQPInputHandler implements ProtocolInputHandler {
         lengthComplete = false;
     }
 
+    // Called from the chunk listener if the current chunk buffer is still referenced after it returns
+    public void detachBuffer() {
+        bufferDetached = true;
+    }
+
     public ByteBuffer getByteBuffer() {
         byteBuffer.position(bufferOffset);
         return byteBuffer;
@@ -89,7 +95,8 @@ public class SMQPInputHandler implements ProtocolInputHandler {
                 lengthComplete = false;
                 lengthByteCount = 0;
                 bufferOffset = 0; // Reset bufferOffset for the next length/chunk read.
-                prevBuffer = buffer;
+                prevBuffer = bufferDetached ? null : buffer;
+                bufferDetached = false;
                 buffer = lengthField;
                 byteBuffer = ByteBuffer.wrap(buffer);
             }
@@ -106,6 +106,20 @@ public abstract class Swiftlet {
         return false;
     }
 
+    /**
+     * Returns the names of the Swiftlets this Swiftlet depends on.
+     * The SwiftletManager starts a Swiftlet after its dependencies and stops it before them.
+     * Swiftlets which do not depend on each other are started and stopped concurrently.
+     * <br><br>
+     * The default returns null which means the Swiftlet depends on all Swiftlets defined
+     * before it, so it is started and stopped in definition order.
+     *
+     * @return swiftlet names or null.
+     */
+    public String[] getDependencies() {
+        return null;
+    }
+
     /**
      * Start this Swiftlet.
      * Called from the SwiftletManager during router start. The Swiftlet configuration is
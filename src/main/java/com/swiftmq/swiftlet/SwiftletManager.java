@@ -41,13 +41,25 @@ import org.dom4j.Element;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.security.Security;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
@@ -94,6 +106,9 @@ public class SwiftletManager {
     static final String PROP_PRECONFIG = "swiftmq.preconfig";
     static final String PROP_SHUTDOWN_HOOK = "swiftmq.shutdown.hook";
     static final String PROP_REUSE_KERNEL_CL = "swiftmq.reuse.kernel.classloader";
+    static final String PROP_PARALLEL_LIFECYCLE = "swiftmq.swiftletmanager.parallel";
+    static final String PROP_CONFIG_SAVE_DELAY = "swiftmq.config.save.delay";
+    static final String PROP_CONFIG_SAVE_MAX_DELAY = "swiftmq.config.save.maxdelay";
     protected static final AtomicReference<SwiftletManager> _instance = new AtomicReference<>();
     static SimpleDateFormat fmt = new SimpleDateFormat(".yyyyMMddHHmmssSSS");
     final AtomicReference<String> configFilename = new AtomicReference<>();
@@ -104,14 +119,15 @@ public class SwiftletManager {
     Map<String, Swiftlet> swiftletTable = null;
     DeployPath dp = null;
     Map<String, Bundle> bundleTable = null;
-    Map<String, HashSet<SwiftletManagerListener>> listeners = new ConcurrentHashMap<>();
+    Map<String, Set<SwiftletManagerListener>> listeners = new ConcurrentHashMap<>();
     Set allListeners = ConcurrentHashMap.newKeySet();
-    Set<KernelStartupListener> kernelListeners = new HashSet<>();
+    Set<KernelStartupListener> kernelListeners = ConcurrentHashMap.newKeySet();
+    Map<String, Set<String>> kernelDependencies = new ConcurrentHashMap<>();
     Map<String, Object> surviveMap = new ConcurrentHashMap<String, Object>();
     RouterMemoryMeter memoryMeter = null;
     SwiftletDeployer swiftletDeployer = null;
 
-    LogSwiftlet logSwiftlet = null;
+    volatile LogSwiftlet logSwiftlet = null;
     TraceSwiftlet traceSwiftlet = null;
     TimerSwiftlet timerSwiftlet = null;
 
@@ -126,11 +142,19 @@ public class SwiftletManager {
     final AtomicBoolean strippedMode = new AtomicBoolean(false);
     final AtomicBoolean doFireKernelStartedEvent = new AtomicBoolean(true);
     final AtomicBoolean configDirty = new AtomicBoolean(false);
+    final AtomicLong configSaveDelay = new AtomicLong(Long.parseLong(System.getProperty(PROP_CONFIG_SAVE_DELAY, "500")));
+    final AtomicLong configSaveMaxDelay = new AtomicLong(Long.parseLong(System.getProperty(PROP_CONFIG_SAVE_MAX_DELAY, "5000")));
+    final AtomicBoolean parallelLifecycle = new AtomicBoolean(Boolean.parseBoolean(System.getProperty(PROP_PARALLEL_LIFECYCLE, "true")));
     PrintStream savedSystemOut = System.out;
     volatile Thread shutdownHook = null;
     volatile Thread keepAliveThread = null;
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object saveLock = new Object();
+    private ScheduledExecutorService configSaver = null;
+    private ScheduledFuture<?> pendingSave = null;
+    private long pendingSaveSince = -1;
+    private long saveGeneration = 0;
 
     protected SwiftletManager() {
     }
@@ -227,11 +251,7 @@ public class SwiftletManager {
     }
 
     protected void shutdownSwiftlet(Swiftlet swiftlet) throws SwiftletException {
-        try {
-            Configuration config = getConfiguration(swiftlet);
-            System.out.println("... shutdown: " + config.getMetaData().getDisplayName());
-        } catch (Exception ignored) {
-        }
+        printShutdown(swiftlet);
         SwiftletShutdown ss = new SwiftletShutdown(swiftlet);
         Thread t = new Thread(ss);
         t.start();
@@ -243,6 +263,61 @@ public class SwiftletManager {
             throw ss.getException();
     }
 
+    private void printShutdown(Swiftlet swiftlet) {
+        try {
+            Configuration config = getConfiguration(swiftlet);
+            System.out.println("... shutdown: " + config.getMetaData().getDisplayName());
+        } catch (Exception ignored) {
+        }
+    }
+
+    private Set<String> getEffectiveDependencies(Swiftlet swiftlet, List<String> predecessors) {
+        String[] declared = parallelLifecycle.get() ? swiftlet.getDependencies() : null;
+        if (declared == null)
+            return new LinkedHashSet<>(predecessors);
+        Set<String> deps = new LinkedHashSet<>();
+        for (String dep : declared) {
+            if (predecessors.contains(dep))
+                deps.add(dep);
+            else
+                trace("Swiftlet " + swiftlet.getName() + "', dependency '" + dep + "' is not defined before, ignored");
+        }
+        return deps;
+    }
+
+    private ExecutorService createLifecycleExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static CompletableFuture<Void> allOf(Collection<String> names, Map<String, CompletableFuture<Void>> futures) {
+        List<CompletableFuture<Void>> list = new ArrayList<>();
+        for (String name : names) {
+            CompletableFuture<Void> future = futures.get(name);
+            if (future != null)
+                list.add(future);
+        }
+        return CompletableFuture.allOf(list.toArray(new CompletableFuture[0]));
+    }
+
+    // Waits for a lifecycle task and rethrows its original exception
+    private static void await(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable t = e;
+            while (t instanceof CompletionException && t.getCause() != null)
+                t = t.getCause();
+            if (t instanceof Exception)
+                throw (Exception) t;
+            throw e;
+        }
+    }
+
     protected void startKernelSwiftlets() {
         String actSwiftletName = null;
         Swiftlet swiftlet = null;
@@ -272,12 +347,41 @@ public class SwiftletManager {
             trace("Trace swiftlet '" + actSwiftletName + " has been started");
             trace("Starting kernel swiftlets");
 
-            // Next: start the other kernel swiftlets
-            for (String kernelSwiftletName : kernelSwiftletNames) {
-                actSwiftletName = kernelSwiftletName;
-                startKernelSwiftlet(actSwiftletName, swiftletTable);
-                if (kernelSwiftletName.equals("sys$log"))
-                    logSwiftlet = (LogSwiftlet) getSwiftlet("sys$log");
+            // Next: start the other kernel swiftlets, each one after its dependencies
+            ExecutorService executor = createLifecycleExecutor("SwiftletManager-Startup");
+            Map<String, CompletableFuture<Void>> started = new HashMap<>();
+            List<String> predecessors = new ArrayList<>();
+            AtomicReference<String> failed = new AtomicReference<>();
+            try {
+                for (String kernelSwiftletName : kernelSwiftletNames) {
+                    actSwiftletName = kernelSwiftletName;
+                    Swiftlet kernelSwiftlet = loadKernelSwiftlet(actSwiftletName, swiftletTable);
+                    Set<String> deps = getEffectiveDependencies(kernelSwiftlet, predecessors);
+                    kernelDependencies.put(kernelSwiftletName, deps);
+                    if (!parallelLifecycle.get() || kernelSwiftlet.getDependencies() == null) {
+                        await(allOf(deps, started));
+                        startKernelSwiftlet(kernelSwiftlet);
+                        started.put(kernelSwiftletName, CompletableFuture.completedFuture(null));
+                    } else {
+                        trace("Kernel swiftlet: '" + actSwiftletName + "', starts after " + deps);
+                        started.put(kernelSwiftletName, allOf(deps, started).thenRunAsync(() -> {
+                            try {
+                                startKernelSwiftlet(kernelSwiftlet);
+                            } catch (Exception e) {
+                                failed.compareAndSet(null, kernelSwiftletName);
+                                throw new CompletionException(e);
+                            }
+                        }, executor));
+                    }
+                    predecessors.add(kernelSwiftletName);
+                }
+                await(allOf(predecessors, started));
+            } catch (Exception e) {
+                if (failed.get() != null)
+                    actSwiftletName = failed.get();
+                throw e;
+            } finally {
+                executor.shutdown();
             }
 
             // Create Extension Swiftlet Deployer
@@ -295,6 +399,10 @@ public class SwiftletManager {
     }
 
     protected void startKernelSwiftlet(String actSwiftletName, Map<String, Swiftlet> table) throws Exception {
+        startKernelSwiftlet(loadKernelSwiftlet(actSwiftletName, table));
+    }
+
+    private Swiftlet loadKernelSwiftlet(String actSwiftletName, Map<String, Swiftlet> table) throws Exception {
         Swiftlet swiftlet;
         long startupTime;
         trace("Starting kernel swiftlet: '" + actSwiftletName + "' ...");
@@ -311,12 +419,19 @@ public class SwiftletManager {
         }
         swiftlet.setName(actSwiftletName);
         swiftlet.setKernel(true);
-        trace("Kernel swiftlet: '" + actSwiftletName + "', startUpSwiftlet ...");
         table.put(actSwiftletName, swiftlet);
         Configuration conf = getConfiguration(swiftlet);
         RouterConfiguration.Singleton().getConfigurations().put(actSwiftletName, conf);
-        startUpSwiftlet(swiftlet, conf);
+        return swiftlet;
+    }
+
+    private void startKernelSwiftlet(Swiftlet swiftlet) throws Exception {
+        String actSwiftletName = swiftlet.getName();
+        trace("Kernel swiftlet: '" + actSwiftletName + "', startUpSwiftlet ...");
+        startUpSwiftlet(swiftlet, getConfiguration(actSwiftletName));
         swiftlet.setStartupTime(System.currentTimeMillis());
+        if (actSwiftletName.equals("sys$log"))
+            logSwiftlet = (LogSwiftlet) swiftlet;
         trace("Kernel swiftlet: '" + actSwiftletName + "', is running");
     }
 
@@ -334,20 +449,63 @@ public class SwiftletManager {
                     al.add(swiftlet);
                 }
             }
-            al.add(swiftletTable.get("sys$trace"));
-            al.forEach(swiftlet -> {
-                try {
-                    shutdownSwiftlet(swiftlet);
-                } catch (SwiftletException ignored) {
-                }
-                swiftlet.setStartupTime(-1);
-            });
+            stopSwiftlets(al, kernelDependencies, "SwiftletManager-Shutdown");
+            kernelDependencies.clear();
+            Swiftlet trace = swiftletTable.get("sys$trace");
+            try {
+                shutdownSwiftlet(trace);
+            } catch (SwiftletException ignored) {
+            }
+            trace.setStartupTime(-1);
         } finally {
             lock.writeLock().unlock();
         }
 
     }
 
+    // Stops the Swiftlets (in reverse definition order) after all Swiftlets depending on them
+    private void stopSwiftlets(List<Swiftlet> reverseOrdered, Map<String, Set<String>> dependencies, String threadName) {
+        ExecutorService executor = createLifecycleExecutor(threadName);
+        Map<String, CompletableFuture<Void>> stopped = new HashMap<>();
+        try {
+            for (Swiftlet swiftlet : reverseOrdered) {
+                String name = swiftlet.getName();
+                List<String> dependents = new ArrayList<>();
+                for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                    if (entry.getValue().contains(name))
+                        dependents.add(entry.getKey());
+                }
+                trace("stopSwiftlets: Stopping swiftlet '" + name + "'");
+                if (!parallelLifecycle.get() || swiftlet.getDependencies() == null) {
+                    try {
+                        await(allOf(dependents, stopped));
+                    } catch (Exception ignored) {
+                    }
+                    try {
+                        shutdownSwiftlet(swiftlet);
+                    } catch (SwiftletException ignored) {
+                    }
+                    swiftlet.setStartupTime(-1);
+                    stopped.put(name, CompletableFuture.completedFuture(null));
+                } else {
+                    // Already on a separate thread, so the Swiftlet is stopped directly
+                    stopped.put(name, allOf(dependents, stopped).thenRunAsync(() -> {
+                        printShutdown(swiftlet);
+                        new SwiftletShutdown(swiftlet).run();
+                        swiftlet.setStartupTime(-1);
+                        trace("stopSwiftlets: Swiftlet " + name + " has been stopped");
+                    }, executor));
+                }
+            }
+            try {
+                await(allOf(stopped.keySet(), stopped));
+            } catch (Exception ignored) {
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private void fillSwiftletTable() {
         for (String kernelSwiftletName : kernelSwiftletNames) swiftletTable.put(kernelSwiftletName, null);
     }
@@ -651,6 +809,7 @@ public class SwiftletManager {
             if (cmd.length > 1)
                 return new String[]{TreeCommands.ERROR, "Invalid command, please try 'save'"};
             String[] result = null;
+            cancelPendingSave();
             result = saveConfiguration(RouterConfiguration.Singleton());
             return result;
         };
@@ -891,16 +1050,16 @@ public class SwiftletManager {
                     }
                 }
             }
-            for (Swiftlet anAl : al) {
-                Swiftlet swiftlet = anAl;
-                trace("stopAllSwiftlets: Stopping swiftlet '" + swiftlet.getName() + "'");
-                try {
-                    shutdownSwiftlet(swiftlet);
-                } catch (SwiftletException ignored) {
-                }
-                swiftlet.setStartupTime(-1);
-                trace("stopAllSwiftlets: Swiftlet " + swiftlet.getName() + " has been stopped");
+            // Extension Swiftlets may only depend on Extension Swiftlets defined before them
+            Collections.reverse(al);
+            Map<String, Set<String>> dependencies = new HashMap<>();
+            List<String> predecessors = new ArrayList<>();
+            for (int i = al.size() - 1; i >= 0; i--) {
+                Swiftlet swiftlet = al.get(i);
+                dependencies.put(swiftlet.getName(), getEffectiveDependencies(swiftlet, predecessors));
+                predecessors.add(swiftlet.getName());
             }
+            stopSwiftlets(al, dependencies, "SwiftletManager-StopExtensions");
         } finally {
             lock.readLock().unlock();
         }
@@ -921,10 +1080,14 @@ public class SwiftletManager {
         try {
             System.out.println("Shutdown SwiftMQ " + Version.getKernelVersion() + " " + "[" + getRouterName() + "] ...");
             trace("shutdown");
+            // Save before anything is stopped, a Swiftlet may hang while stopping
             saveConfigIfDirty();
+            flushConfiguration();
             memoryMeter.close();
             stopAllSwiftlets();
             stopKernelSwiftlets();
+            flushConfiguration();
+            stopConfigSaver();
             listeners.clear();
             allListeners.clear();
             kernelListeners.clear();
@@ -951,10 +1114,79 @@ public class SwiftletManager {
 
     /**
      * Saves this router's configuration.
+     * <br><br>
+     * The save is performed asynchronously after a short delay so that a burst of changes
+     * results in a single write. The delay is controlled by the system properties
+     * "swiftmq.config.save.delay" (default 500 ms, 0 saves synchronously) and
+     * "swiftmq.config.save.maxdelay" (default 5000 ms) which limits how long a save can be
+     * postponed by further changes. Pending saves are flushed on shutdown.
      */
     public void saveConfiguration() {
+        long delay = configSaveDelay.get();
+        if (delay <= 0) {
+            saveConfigurationNow(-1);
+            return;
+        }
+        synchronized (saveLock) {
+            long now = System.currentTimeMillis();
+            if (pendingSave != null) {
+                if (now + delay - pendingSaveSince > configSaveMaxDelay.get())
+                    return;
+                pendingSave.cancel(false);
+            } else
+                pendingSaveSince = now;
+            if (configSaver == null) {
+                configSaver = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "SwiftletManager-ConfigSaver");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            long generation = ++saveGeneration;
+            pendingSave = configSaver.schedule(() -> saveConfigurationNow(generation), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Performs a pending asynchronous configuration save immediately.
+     */
+    public void flushConfiguration() {
+        if (cancelPendingSave())
+            saveConfigurationNow(-1);
+    }
+
+    private boolean cancelPendingSave() {
+        synchronized (saveLock) {
+            if (pendingSave == null)
+                return false;
+            pendingSave.cancel(false);
+            pendingSave = null;
+            saveGeneration++;
+            return true;
+        }
+    }
+
+    private void stopConfigSaver() {
+        synchronized (saveLock) {
+            cancelPendingSave();
+            if (configSaver != null) {
+                configSaver.shutdown();
+                configSaver = null;
+            }
+        }
+    }
+
+    // generation -1 saves unconditionally, otherwise only if no newer save has been scheduled or flushed
+    private void saveConfigurationNow(long generation) {
         lock.writeLock().lock();
         try {
+            if (generation != -1) {
+                synchronized (saveLock) {
+                    if (generation != saveGeneration)
+                        return;
+                    pendingSave = null;
+                }
+            }
             saveConfiguration(RouterConfiguration.Singleton());
             configDirty.set(false);
         } finally {
@@ -969,15 +1201,8 @@ public class SwiftletManager {
     protected String[] saveConfiguration(RouterConfigInstance entity) {
         List<String> al = new ArrayList<String>();
         al.add(TreeCommands.INFO);
-        try {
-            String backupFile = configFilename + fmt.format(new Date());
-            File file = new File(configFilename.get());
-            file.renameTo(new File(backupFile));
-            new NumberBackupFileReducer(file.getParent(), file.getName() + ".", 15).process();
-            al.add("Configuration backed up to file '" + backupFile + "'.");
-        } catch (Exception e) {
-            al.add("Error creating configuration backup: " + e);
-        }
+        File file = new File(configFilename.get());
+        File tmpFile = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
         try {
             Document doc = DocumentHelper.createDocument();
             doc.addComment("  SwiftMQ Configuration. Last Save Time: " + new Date() + "  ");
@@ -1003,7 +1228,33 @@ public class SwiftletManager {
                 if (c instanceof Configuration)
                     XMLUtilities.configToXML((Configuration) c, root);
             }
-            XMLUtilities.writeDocument(doc, configFilename.get());
+            // Write to a temp file first so a crash never leaves a truncated configuration
+            XMLUtilities.writeDocumentSynced(doc, tmpFile);
+        } catch (Exception e) {
+            tmpFile.delete();
+            al.add("Error saving configuration: " + e);
+            return (String[]) al.toArray(new String[al.size()]);
+        }
+        try {
+            String backupFile = configFilename + fmt.format(new Date());
+            if (file.exists()) {
+                try {
+                    Files.createLink(Paths.get(backupFile), file.toPath());
+                } catch (Exception e) {
+                    Files.copy(file.toPath(), Paths.get(backupFile));
+                }
+            }
+            new NumberBackupFileReducer(file.getParent(), file.getName() + ".", 15).process();
+            al.add("Configuration backed up to file '" + backupFile + "'.");
+        } catch (Exception e) {
+            al.add("Error creating configuration backup: " + e);
+        }
+        try {
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
             al.add("Configuration saved to file '" + configFilename + "'.");
         } catch (Exception e) {
             al.add("Error saving configuration: " + e);
@@ -1075,12 +1326,7 @@ public class SwiftletManager {
      */
     public final void addSwiftletManagerListener(String swiftletName, SwiftletManagerListener l) {
         trace("addSwiftletManagerListener: Swiftlet " + swiftletName + "', adding SwiftletManagerListener");
-        HashSet<SwiftletManagerListener> qListeners = listeners.get(swiftletName);
-        if (qListeners == null) {
-            qListeners = new HashSet<SwiftletManagerListener>();
-            listeners.put(swiftletName, qListeners);
-        }
-        qListeners.add(l);
+        listeners.computeIfAbsent(swiftletName, k -> ConcurrentHashMap.newKeySet()).add(l);
     }
 
     /**
@@ -1101,11 +1347,11 @@ public class SwiftletManager {
      */
     public final void removeSwiftletManagerListener(String swiftletName, SwiftletManagerListener l) {
         trace("removeSwiftletManagerListener: Swiftlet " + swiftletName + "', removing SwiftletManagerListener");
-        HashSet<SwiftletManagerListener> qListeners = listeners.get(swiftletName);
+        Set<SwiftletManagerListener> qListeners = listeners.get(swiftletName);
         if (qListeners != null) {
             qListeners.remove(l);
             if (qListeners.isEmpty())
-                listeners.put(swiftletName, null);
+                listeners.remove(swiftletName, qListeners);
         }
     }
 
@@ -1141,8 +1387,7 @@ public class SwiftletManager {
 
     protected void fireKernelStartedEvent() {
         trace("fireKernelStartedEvent");
-        Set<? extends KernelStartupListener> cloned = null;
-        cloned = (Set<? extends KernelStartupListener>) ((HashSet) kernelListeners).clone();
+        List<KernelStartupListener> cloned = new ArrayList<>(kernelListeners);
         for (KernelStartupListener aCloned : cloned) {
             (aCloned).kernelStarted();
         }
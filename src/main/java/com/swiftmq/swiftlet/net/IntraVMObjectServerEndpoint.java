@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.swiftmq.swiftlet.net;
+
+import com.swiftmq.tools.dump.Dumpable;
+
+/**
+ * An IntraVMServerEndpoint which accepts Dumpables by reference instead of serialized chunks.
+ * An intra-VM client connection in object passing mode uses it to skip the encode/decode round
+ * trip. The client snapshots message payloads before it passes a request, so the endpoint
+ * owns every object it receives. In the other direction, the endpoint must isolate messages
+ * it passes to the client the same way.
+ *
+ * @see com.swiftmq.net.client.IntraVMConnection#dumpableCompleted(Dumpable)
+ */
+public interface IntraVMObjectServerEndpoint extends IntraVMServerEndpoint {
+
+    /**
+     * Called from the intra-VM client connection to pass a Dumpable.
+     *
+     * @param obj Dumpable
+     */
+    public void dumpableCompleted(Dumpable obj);
+}
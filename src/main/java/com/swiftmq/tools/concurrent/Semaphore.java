@@ -23,7 +23,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Semaphore {
-    boolean notified = false;
+    volatile boolean notified = false;
     boolean interruptable = true;
     Lock lock = new ReentrantLock();
     Condition waiter = null;
@@ -39,6 +39,8 @@ public class Semaphore {
     }
 
     public void waitHere() {
+        if (WaitStrategy.spinUntil(() -> notified, 0))
+            return;
         lock.lock();
         try {
             while (!notified) {
@@ -56,9 +58,12 @@ public class Semaphore {
     }
 
     public void waitHere(long ms) {
+        long start = System.nanoTime();
+        if (ms > 0 && WaitStrategy.spinUntil(() -> notified, unit.toNanos(ms)))
+            return;
         lock.lock();
         try {
-            long nanos = unit.toNanos(ms);
+            long nanos = unit.toNanos(ms) - (System.nanoTime() - start);
             while (!notified && nanos > 0) {
                 try {
                     nanos = waiter.awaitNanos(nanos);
@@ -91,12 +96,7 @@ public class Semaphore {
     }
 
     public boolean isNotified() {
-        lock.lock();
-        try {
-            return notified;
-        } finally {
-            lock.unlock();
-        }
+        return notified;
     }
 
     public void reset() {
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.swiftmq.tools.concurrent;
+
+import com.swiftmq.tools.prop.SystemProperties;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded spinning before a thread blocks in Semaphore or UninterruptableWaiter.
+ * <p>
+ * Selected by "swiftmq.wait.strategy":
+ * <ul>
+ * <li>"block" (default): no spinning, block immediately</li>
+ * <li>"busyspin": busy-spin</li>
+ * <li>"spinyield": busy-spin for "swiftmq.wait.spin.iterations", then yield</li>
+ * <li>"spinpark": busy-spin for "swiftmq.wait.spin.iterations", then park for short intervals</li>
+ * </ul>
+ * Each strategy spins at most "swiftmq.wait.spin.nanos" before it falls back to blocking.
+ */
+public final class WaitStrategy {
+    public static final String PROP_STRATEGY = "swiftmq.wait.strategy";
+    public static final String PROP_SPIN_NANOS = "swiftmq.wait.spin.nanos";
+    public static final String PROP_SPIN_ITERATIONS = "swiftmq.wait.spin.iterations";
+
+    static final int BLOCK = 0;
+    static final int BUSY_SPIN = 1;
+    static final int SPIN_YIELD = 2;
+    static final int SPIN_PARK = 3;
+
+    static final int STRATEGY = parseStrategy(SystemProperties.get(PROP_STRATEGY, "block"));
+    static final long SPIN_NANOS = Long.parseLong(SystemProperties.get(PROP_SPIN_NANOS, "50000"));
+    static final int SPIN_ITERATIONS = Integer.parseInt(SystemProperties.get(PROP_SPIN_ITERATIONS, "100"));
+    static final long PARK_NANOS = 1000;
+
+    private WaitStrategy() {
+    }
+
+    private static int parseStrategy(String s) {
+        switch (s) {
+            case "busyspin":
+                return BUSY_SPIN;
+            case "spinyield":
+                return SPIN_YIELD;
+            case "spinpark":
+                return SPIN_PARK;
+            default:
+                return BLOCK;
+        }
+    }
+
+    public static boolean isSpinning() {
+        return STRATEGY != BLOCK && SPIN_NANOS > 0;
+    }
+
+    /**
+     * Spins until the condition becomes true or the spin budget is exhausted.
+     *
+     * @param condition condition
+     * @param maxNanos  upper bound in addition to the configured budget, 0 = none
+     * @return true if the condition became true
+     */
+    public static boolean spinUntil(BooleanSupplier condition, long maxNanos) {
+        if (!isSpinning())
+            return condition.getAsBoolean();
+        long budget = maxNanos > 0 ? Math.min(maxNanos, SPIN_NANOS) : SPIN_NANOS;
+        long deadline = System.nanoTime() + budget;
+        int iterations = 0;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0)
+                return false;
+            if (STRATEGY == BUSY_SPIN || iterations < SPIN_ITERATIONS) {
+                iterations++;
+                Thread.onSpinWait();
+            } else if (STRATEGY == SPIN_YIELD)
+                Thread.yield();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+        }
+        return true;
+    }
+}
@@ -93,6 +93,72 @@ public abstract class SingleProcessorQueue {
         }
     }
 
+    /**
+     * Enqueues several elements at once, so they are passed to the same process call
+     * as long as they fit into the bulk size.
+     *
+     * @param objs elements
+     * @param n    number of elements
+     */
+    public void enqueue(Object[] objs, int n) {
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            for (int i = 0; i < n; i++)
+                doEnqueue(objs[i]);
+            if (!processorActive && started) {
+                startProcessor();
+                processorActive = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Processes an element directly on the calling thread if the queue is started, empty
+     * and no processor is active. Otherwise the element is enqueued as with enqueue.
+     * Elements enqueued during the direct processing are handed over to a processor afterwards.
+     *
+     * @param obj element
+     * @return true if the element has been processed on the calling thread
+     */
+    public boolean processDirect(Object obj) {
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return false;
+            if (processorActive || !started || size > 0) {
+                doEnqueue(obj);
+                if (!processorActive && started) {
+                    startProcessor();
+                    processorActive = true;
+                }
+                return false;
+            }
+            processorActive = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        passDirectWrapper[0] = obj;
+        try {
+            process(passDirectWrapper, 1);
+        } finally {
+            passDirectWrapper[0] = null;
+            lock.writeLock().lock();
+            try {
+                if (!closed && started && size > 0)
+                    startProcessor();
+                else
+                    processorActive = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
     public boolean dequeue() {
         int n = 0;
         lock.writeLock().lock();
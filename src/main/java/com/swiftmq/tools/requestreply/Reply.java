@@ -96,7 +96,7 @@ public class Reply implements Dumpable, Serializable {
     /**
      * @SBGen Method get requestNumber
      */
-    int getRequestNumber() {
+    public int getRequestNumber() {
         // SBgen: Get variable
         return (requestNumber);
     }
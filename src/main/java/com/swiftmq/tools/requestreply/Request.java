@@ -136,11 +136,11 @@ public abstract class Request implements Dumpable, Serializable {
         this.timeout = timeout;
     }
 
-    int getRequestNumber() {
+    public int getRequestNumber() {
         return (requestNumber);
     }
 
-    void setRequestNumber(int requestNumber) {
+    public void setRequestNumber(int requestNumber) {
         this.requestNumber = requestNumber;
     }
 
@@ -43,6 +43,7 @@ public class RequestRegistry implements TimerListener {
     Semaphore retrySem = null;
     Set<Request> retrySet = ConcurrentHashMap.newKeySet();
     String debugString = null;
+    volatile Thread directDispatchThread = null;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     public RequestRegistry() {
@@ -81,12 +82,80 @@ public class RequestRegistry implements TimerListener {
             requestHandler.performRequest(req);
             return null;
         }
+        if (Thread.currentThread() == directDispatchThread)
+            return createDirectDispatchReply(req);
 
-        // Process request as long as doRetry flag is set
+        requestAsync(req);
+        return awaitReply(req);
+    }
+
+    /**
+     * Sets the thread which currently delivers messages directly while it is reading replies.
+     * A blocking request from this thread would never get its reply and fails instead.
+     *
+     * @param thread thread or null
+     * @return the previous thread
+     */
+    public Thread setDirectDispatchThread(Thread thread) {
+        Thread previous = directDispatchThread;
+        directDispatchThread = thread;
+        return previous;
+    }
+
+    /**
+     * Returns whether the calling thread currently delivers messages directly.
+     *
+     * @return true if requests from this thread can't receive a reply
+     */
+    public boolean isDirectDispatchThread() {
+        return Thread.currentThread() == directDispatchThread;
+    }
+
+    private Reply createDirectDispatchReply(Request req) {
+        Reply reply = req.createReply();
+        reply.setOk(false);
+        reply.setException(new Exception("Synchronous request not possible within a directly dispatched onMessage: " + req));
+        return reply;
+    }
+
+    /**
+     * Registers and sends a request without waiting for the reply. The reply must be
+     * obtained with awaitReply. Requests sent this way are written in call order so
+     * several of them can be in flight at the same time.
+     * <p>
+     * Within a directly dispatched onMessage the request is not sent at all. Its reply is
+     * set to an error immediately, so awaitReply returns without waiting.
+     *
+     * @param req request, reply required
+     * @return false if the request has been rejected without being sent
+     */
+    public boolean requestAsync(Request req) {
+        if (Thread.currentThread() == directDispatchThread) {
+            req._sem = null;
+            req.setDoRetry(false);
+            req.setReply(createDirectDispatchReply(req));
+            return false;
+        }
         req._sem = new Semaphore(false); // not interruptable!
-        do {
-            processRequest(req);
-            req._sem.waitHere();
+        processRequest(req);
+        return true;
+    }
+
+    /**
+     * Waits for the reply of a request sent with requestAsync. Retries the request
+     * as long as the doRetry flag is set.
+     *
+     * @param req request
+     * @return reply
+     */
+    public Reply awaitReply(Request req) {
+        if (req._sem == null)
+            return req.getReply();
+        // sent before direct dispatch started, the reply can't be read while waiting here
+        if (Thread.currentThread() == directDispatchThread)
+            return createDirectDispatchReply(req);
+        req._sem.waitHere();
+        while (true) {
             if (req.getReply() == null && req.isDoRetry()) {
                 if (DEBUG) System.out.println(debugString + ": Retry: " + req);
                 RequestRetryValidator validator = req.getValidator();
@@ -131,8 +200,12 @@ public class RequestRegistry implements TimerListener {
             if (req.getReply() == null && req.isDoRetry()) {
                 if (DEBUG) System.out.println(debugString + ": No Reply && isDoRetry: " + req);
 
-            }
-        } while (req.getReply() == null && req.isDoRetry());
+            } else
+                break;
+            // Process request as long as doRetry flag is set
+            processRequest(req);
+            req._sem.waitHere();
+        }
 
         return req.getReply();
     }
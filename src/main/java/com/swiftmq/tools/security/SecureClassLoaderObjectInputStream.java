@@ -190,6 +190,29 @@ public class SecureClassLoaderObjectInputStream extends ObjectInputStream {
         }
     }
 
+    private static boolean isInPackages(String packageName, String[] packages) {
+        for (String p : packages) {
+            if (packageName.equals(p) || packageName.startsWith(p + "."))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies the default allow-list to a class whose instances are constructed without
+     * Java serialization, e.g. by an ObjectMessage codec.
+     *
+     * @param clazz the class
+     * @throws ClassNotFoundException if the class is not trusted
+     */
+    public static void checkTrusted(Class clazz) throws ClassNotFoundException {
+        if (clazz.isPrimitive() || clazz.getPackage() == null || (trusted.length == 1 && trusted[0].equals("*")))
+            return;
+        String packageName = clazz.getPackage().getName();
+        if (!isInPackages(packageName, trusted) && !isInPackages(packageName, serializablePackages))
+            throw new ClassNotFoundException("Forbidden " + clazz + "! This class is not trusted to be serialized as ObjectMessage payload. ");
+    }
+
     private Class<?> load(String className, ClassLoader... cl) throws ClassNotFoundException {
         // check for simple types first
         final Class<?> clazz = loadSimpleType(className);
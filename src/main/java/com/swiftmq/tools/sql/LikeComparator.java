@@ -14,113 +14,234 @@
  * limitations under the License.
  *
  */
-
 package com.swiftmq.tools.sql;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LikeComparator {
     public static final char SINGLE = '_';
     public static final char ANY = '%';
     private static final char NOT_SET = 255;
+    private static final int MAX_CACHED_PATTERNS = 1000;
+    private static final Map<String, Pattern> patternCache = new ConcurrentHashMap<>();
 
     public static boolean compare(String s, String condition, char escapeChar) {
         return compare(s, condition, escapeChar, SINGLE, ANY);
     }
 
-    private static int getLastPosOfChar(String s, char stopChar, int pos) {
-        int startPos = pos;
-        if (pos + 1 < s.length()) {
-            for (int i = startPos + 1; i < s.length(); i++) {
-                if (s.charAt(i) == stopChar)
-                    startPos++;
-                else
+    public static boolean compare(String s, String condition, char escapeChar, char singleChar, char anyChar) {
+        Pattern pattern = patternCache.get(condition);
+        if (pattern == null || !pattern.isCompiledWith(escapeChar, singleChar, anyChar)) {
+            pattern = compile(condition, escapeChar, singleChar, anyChar);
+            if (patternCache.size() >= MAX_CACHED_PATTERNS)
+                patternCache.clear();
+            patternCache.put(condition, pattern);
+        }
+        return pattern.matches(s);
+    }
+
+    /**
+     * Compiles a LIKE condition into a reusable pattern.
+     *
+     * @param condition  the condition
+     * @param escapeChar escape character
+     * @return pattern
+     */
+    public static Pattern compile(String condition, char escapeChar) {
+        return compile(condition, escapeChar, SINGLE, ANY);
+    }
+
+    /**
+     * Compiles a LIKE condition into a reusable pattern. Conditions of the form
+     * 'abc', 'abc%', '%abc', '%abc%' and 'abc%xyz' are matched with plain String
+     * operations, all others with a segment matcher.
+     *
+     * @param condition  the condition
+     * @param escapeChar escape character
+     * @param singleChar wildcard for a single character
+     * @param anyChar    wildcard for any number of characters
+     * @return pattern
+     */
+    public static Pattern compile(String condition, char escapeChar, char singleChar, char anyChar) {
+        // Split into the literal segments between anyChars. singleChars inside a
+        // segment are marked in a parallel array, escaped characters are literals.
+        List<String> segments = new ArrayList<>();
+        List<boolean[]> singles = new ArrayList<>();
+        boolean leadingAny = false;
+        boolean trailingAny = false;
+        boolean hasSingle = false;
+        StringBuilder b = new StringBuilder();
+        List<Boolean> segSingles = new ArrayList<>();
+        for (int i = 0; i < condition.length(); i++) {
+            char c = condition.charAt(i);
+            if (escapeChar != NOT_SET && c == escapeChar) {
+                if (++i == condition.length())
                     break;
+                b.append(condition.charAt(i));
+                segSingles.add(Boolean.FALSE);
+                trailingAny = false;
+            } else if (c == anyChar) {
+                if (b.length() == 0 && segments.isEmpty())
+                    leadingAny = true;
+                if (b.length() > 0) {
+                    segments.add(b.toString());
+                    singles.add(toArray(segSingles));
+                    b.setLength(0);
+                    segSingles.clear();
+                }
+                trailingAny = true;
+            } else {
+                b.append(c);
+                segSingles.add(c == singleChar);
+                hasSingle |= c == singleChar;
+                trailingAny = false;
             }
         }
-        return startPos;
+        if (b.length() > 0) {
+            segments.add(b.toString());
+            singles.add(toArray(segSingles));
+        }
+
+        int kind;
+        if (segments.isEmpty())
+            kind = leadingAny ? Pattern.ANY : Pattern.EXACT;
+        else if (hasSingle)
+            kind = Pattern.GENERAL;
+        else if (segments.size() == 1) {
+            if (leadingAny && trailingAny)
+                kind = Pattern.CONTAINS;
+            else if (leadingAny)
+                kind = Pattern.SUFFIX;
+            else if (trailingAny)
+                kind = Pattern.PREFIX;
+            else
+                kind = Pattern.EXACT;
+        } else if (segments.size() == 2 && !leadingAny && !trailingAny)
+            kind = Pattern.PREFIX_SUFFIX;
+        else
+            kind = Pattern.GENERAL;
+        return new Pattern(kind, segments.toArray(new String[0]), singles.toArray(new boolean[0][]), leadingAny, trailingAny,
+                escapeChar, singleChar, anyChar);
     }
 
-    public static boolean compare(String s, String condition, char escapeChar, char singleChar, char anyChar) {
-        if (condition.length() == 1 && condition.charAt(0) == anyChar) // the case '%', matches anything
+    private static boolean[] toArray(List<Boolean> list) {
+        boolean[] a = new boolean[list.size()];
+        for (int i = 0; i < a.length; i++)
+            a[i] = list.get(i);
+        return a;
+    }
+
+    /**
+     * A precompiled LIKE condition.
+     */
+    public static class Pattern {
+        static final int ANY = 0;
+        static final int EXACT = 1;
+        static final int PREFIX = 2;
+        static final int SUFFIX = 3;
+        static final int CONTAINS = 4;
+        static final int PREFIX_SUFFIX = 5;
+        static final int GENERAL = 6;
+
+        final int kind;
+        final String[] segments;
+        final boolean[][] singles;
+        final boolean leadingAny;
+        final boolean trailingAny;
+        final char escapeChar;
+        final char singleChar;
+        final char anyChar;
+        final int minLength;
+
+        Pattern(int kind, String[] segments, boolean[][] singles, boolean leadingAny, boolean trailingAny, char escapeChar, char singleChar, char anyChar) {
+            this.kind = kind;
+            this.segments = segments;
+            this.singles = singles;
+            this.leadingAny = leadingAny;
+            this.trailingAny = trailingAny;
+            this.escapeChar = escapeChar;
+            this.singleChar = singleChar;
+            this.anyChar = anyChar;
+            int len = 0;
+            for (String segment : segments)
+                len += segment.length();
+            this.minLength = len;
+        }
+
+        boolean isCompiledWith(char escapeChar, char singleChar, char anyChar) {
+            return this.escapeChar == escapeChar && this.singleChar == singleChar && this.anyChar == anyChar;
+        }
+
+        public boolean matches(String s) {
+            switch (kind) {
+                case ANY:
+                    return true;
+                case EXACT:
+                    return segments.length == 0 ? s.length() == 0 : s.equals(segments[0]);
+                case PREFIX:
+                    return s.startsWith(segments[0]);
+                case SUFFIX:
+                    return s.endsWith(segments[0]);
+                case CONTAINS:
+                    return s.contains(segments[0]);
+                case PREFIX_SUFFIX:
+                    return s.length() >= minLength && s.startsWith(segments[0]) && s.endsWith(segments[1]);
+                default:
+                    return matchesGeneral(s);
+            }
+        }
+
+        // Segments have a fixed length, so the leftmost match of each inner segment is always the right one
+        private boolean matchesGeneral(String s) {
+            if (s.length() < minLength)
+                return false;
+            int first = 0;
+            int last = segments.length - 1;
+            int start = 0;
+            int end = s.length();
+            if (!leadingAny) {
+                if (!matchesAt(s, 0, 0))
+                    return false;
+                start = segments[0].length();
+                first = 1;
+            }
+            if (!trailingAny && first <= last) {
+                int pos = end - segments[last].length();
+                if (pos < start || !matchesAt(s, last, pos))
+                    return false;
+                end = pos;
+                last--;
+            } else if (!trailingAny)
+                return start == end;
+            for (int i = first; i <= last; i++) {
+                int pos = indexOf(s, i, start, end);
+                if (pos == -1)
+                    return false;
+                start = pos + segments[i].length();
+            }
             return true;
-        if (condition.length() == 0 && s.length() > 0) // the case ''
-            return false;
-
-        int spos = 0;
-        int cpos = 0;
-        boolean prevWasEscape = false;
-        char cchar = NOT_SET;
-        try {
-            while (spos < s.length()) {
-                cchar = condition.charAt(cpos++);
-                if (escapeChar != NOT_SET && cchar == escapeChar)
-                    prevWasEscape = true;
-                else {
-                    if (cchar == singleChar && !prevWasEscape) {
-                        if (cpos == condition.length())
-                            return spos == s.length() - 1; // the last char in condition, so any does match
-                        spos++; // forward one single character
-                    } else if (cchar == anyChar && !prevWasEscape) {
-                        if (cpos == condition.length())
-                            return true; // the last char in condition, so any does match
-
-                        // spool forward until there is a match with the stop char
-                        // or the end of the string is reached (not match)
-                        char stopChar = condition.charAt(cpos);
-                        for (; ; ) {
-                            if (s.charAt(spos) == stopChar) {
-                                // There may be multiple such stopChars like in 12333 and 12%3 so spool forward to the last one
-                                int prevSPos = spos;
-                                spos = getLastPosOfChar(s, stopChar, spos);
-                                int sCharCnt = spos - prevSPos;
-                                int prevCPos = cpos;
-                                cpos = getLastPosOfChar(condition, stopChar, cpos);
-                                int cCharCnt = cpos - prevCPos;
-
-                                // No match if the conditions stop char cnt > that of the expression like in 12333 and 12%3333
-                                if (cCharCnt > sCharCnt)
-                                    return false;
-
-                                // look ahead if string behind the anyChar matches
-                                int lookSPos = spos;
-                                int lookCPos = cpos;
-                                boolean ok = true;
-                                while (lookSPos < s.length() && lookCPos < condition.length() && ok) {
-                                    if (condition.charAt(lookCPos) == anyChar || condition.charAt(lookCPos) == singleChar)
-                                        break;
-                                    else if (escapeChar != NOT_SET && condition.charAt(lookCPos) == escapeChar) {
-                                        lookCPos++;
-                                        if (lookCPos == condition.length())
-                                            break;
-                                    }
-                                    if (s.charAt(lookSPos) != condition.charAt(lookCPos)) {
-                                        ok = false;
-                                        break;
-                                    }
-                                    lookSPos++;
-                                    lookCPos++;
-                                }
-                                if (lookSPos < s.length() && lookCPos == condition.length())
-                                    return false;
-                                spos = lookSPos;
-                                if (ok) {
-                                    cpos = lookCPos;
-                                    break;
-                                }
-                            }
-                            spos++;
-                            if (spos == s.length())
-                                return false;
-                        }
-                    } else if (cchar != s.charAt(spos++))
-                        return false;
-                    prevWasEscape = false;
-                }
+        }
+
+        private int indexOf(String s, int segment, int from, int to) {
+            int max = to - segments[segment].length();
+            for (int pos = from; pos <= max; pos++) {
+                if (matchesAt(s, segment, pos))
+                    return pos;
             }
-        } catch (Exception e) {
-            return false;
-        } // workaround for c="sal", s="sales"
+            return -1;
+        }
 
-        return cpos == condition.length() || cpos == condition.length() - 1 && condition.charAt(condition.length() - 1) == ANY;
+        private boolean matchesAt(String s, int segment, int pos) {
+            String seg = segments[segment];
+            boolean[] single = singles[segment];
+            for (int i = 0; i < seg.length(); i++) {
+                if (!single[i] && seg.charAt(i) != s.charAt(pos + i))
+                    return false;
+            }
+            return true;
+        }
     }
 }
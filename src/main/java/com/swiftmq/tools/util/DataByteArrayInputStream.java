@@ -28,6 +28,8 @@ public class DataByteArrayInputStream extends InputStream implements LengthCaptu
     int max = 0;
     char[] strbuffer = new char[256];
     long captureLength = 0;
+    boolean sliceable = false;
+    boolean sliced = false;
 
     public DataByteArrayInputStream() {
     }
@@ -72,6 +74,47 @@ public class DataByteArrayInputStream extends InputStream implements LengthCaptu
         this.max = off + len;
         this._offset = off;
         this.captureLength = 0;
+        this.sliced = false;
+    }
+
+    /**
+     * Marks the buffers passed to this stream as sliceable. The owner guarantees that a buffer
+     * is not reused once a slice of it has been taken (see isSliced).
+     *
+     * @param sliceable sliceable
+     */
+    public void setSliceable(boolean sliceable) {
+        this.sliceable = sliceable;
+    }
+
+    public boolean isSliceable() {
+        return sliceable;
+    }
+
+    public boolean isSliced() {
+        return sliced;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Skips len bytes and returns their offset in the current buffer so that they can be
+     * referenced instead of copied. Only valid if the stream is sliceable.
+     *
+     * @param len length
+     * @return offset of the slice in getBuffer()
+     * @throws IOException if there are less than len bytes available
+     */
+    public int slice(int len) throws IOException {
+        if (len + pos > max)
+            throw new EOFException();
+        int off = pos;
+        pos += len;
+        captureLength += len;
+        sliced = true;
+        return off;
     }
 
     public int getMax() {
@@ -87,6 +130,18 @@ public class DataByteArrayInputStream extends InputStream implements LengthCaptu
         return (pos < max) ? (buffer[pos++] & 0xff) : -1;
     }
 
+    public int read(byte b[], int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (pos >= max)
+            return -1;
+        int n = Math.min(len, max - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        captureLength += n;
+        return n;
+    }
+
     public void readFully(byte b[]) throws IOException {
         readFully(b, 0, b.length);
     }
@@ -190,7 +245,7 @@ public class DataByteArrayInputStream extends InputStream implements LengthCaptu
     }
 
     public void reset() throws IOException {
-        pos = 0;
+        pos = _offset;
         captureLength = 0;
     }
 }
@@ -149,7 +149,7 @@ public class DataByteArrayOutputStream extends OutputStream implements DataOutpu
             throw new UTFDataFormatException();
         ensure((int) utfCount + 2);
         count = UTFUtils.writeShortToBuffer((int) utfCount, buffer, count);
-        count = UTFUtils.writeUTFBytesToBuffer(str, buffer, count);
+        count = UTFUtils.writeUTFBytesToBuffer(str, utfCount, buffer, count);
     }
 
     public void rewind() {
@@ -120,7 +120,7 @@ public class DataStreamOutputStream extends OutputStream implements DataOutput {
         byte[] buffer = new byte[(int) utfCount + 2];
         int offset = 0;
         offset = UTFUtils.writeShortToBuffer((int) utfCount, buffer, offset);
-        offset = UTFUtils.writeUTFBytesToBuffer(str, buffer, offset);
+        offset = UTFUtils.writeUTFBytesToBuffer(str, utfCount, buffer, offset);
         write(buffer, 0, offset);
     }
 
@@ -61,7 +61,7 @@ public class LazyUTF8String implements Serializable {
         byte[] b = new byte[utfLength + 2];
         int count = 0;
         count = UTFUtils.writeShortToBuffer(utfLength, b, count);
-        UTFUtils.writeUTFBytesToBuffer(s.get(), b, count);
+        UTFUtils.writeUTFBytesToBuffer(s.get(), utfLength, b, count);
         return b;
     }
 
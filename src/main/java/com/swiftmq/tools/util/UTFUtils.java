@@ -20,24 +20,62 @@ package com.swiftmq.tools.util;
 import java.io.DataInput;
 import java.io.IOException;
 import java.io.UTFDataFormatException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 
 public class UTFUtils {
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    /**
+     * Returns the number of leading bytes in the range 0x00..0x7F. Scans 8 bytes per step.
+     *
+     * @param buf    buffer
+     * @param offset offset
+     * @param len    number of bytes to scan
+     * @return length of the ASCII prefix
+     */
+    public static int countASCIIPrefix(byte[] buf, int offset, int len) {
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            if (((long) LONG_VIEW.get(buf, offset + i) & NON_ASCII_MASK) != 0)
+                break;
+        }
+        while (i < len && buf[offset + i] >= 0)
+            i++;
+        return i;
+    }
+
     public static String decodeUTF(int utfSize, DataInput in) throws IOException {
         byte[] buf = new byte[utfSize];
-        char[] out = new char[utfSize];
         in.readFully(buf, 0, utfSize);
 
-        return convertUTF8WithBuf(buf, out, 0, utfSize);
+        return convertFromUTF8(buf, 0, utfSize);
     }
 
     public static String convertFromUTF8(byte[] buf, int offset, int utfSize)
             throws UTFDataFormatException {
-        return convertUTF8WithBuf(buf, new char[utfSize], offset, utfSize);
+        int ascii = countASCIIPrefix(buf, offset, utfSize);
+        if (ascii == utfSize)
+            return new String(buf, offset, utfSize, StandardCharsets.ISO_8859_1);
+        return convertUTF8WithBuf(buf, new char[utfSize], offset, utfSize, ascii);
     }
 
     public static String convertUTF8WithBuf(byte[] buf, char[] out, int offset,
                                             int utfSize) throws UTFDataFormatException {
-        int count = 0, s = 0, a;
+        int ascii = countASCIIPrefix(buf, offset, utfSize);
+        if (ascii == utfSize)
+            return new String(buf, offset, utfSize, StandardCharsets.ISO_8859_1);
+        return convertUTF8WithBuf(buf, out, offset, utfSize, ascii);
+    }
+
+    private static String convertUTF8WithBuf(byte[] buf, char[] out, int offset,
+                                             int utfSize, int ascii) throws UTFDataFormatException {
+        for (int i = 0; i < ascii; i++)
+            out[i] = (char) buf[offset + i];
+        int count = ascii, s = ascii, a;
         while (count < utfSize) {
             if ((out[s] = (char) buf[offset + count++]) < '\u0080')
                 s++;
@@ -64,8 +102,18 @@ public class UTFUtils {
     }
 
     public static int countUTFBytes(String str) {
-        int utfCount = 0, length = str.length();
-        for (int i = 0; i < length; i++) {
+        int length = str.length();
+        int i = 0;
+        while (i < length) {
+            char c = str.charAt(i);
+            if (c == 0 || c > 127)
+                break;
+            i++;
+        }
+        if (i == length)
+            return length;
+        int utfCount = i;
+        for (; i < length; i++) {
             int charValue = str.charAt(i);
             if (charValue > 0 && charValue <= 127) {
                 utfCount++;
@@ -84,6 +132,28 @@ public class UTFUtils {
         return offset;
     }
 
+    /**
+     * Writes the modified UTF-8 bytes of a string whose encoded length has been determined
+     * by countUTFBytes. If it equals the string length, all chars are ASCII and are copied
+     * in bulk.
+     *
+     * @param str      string
+     * @param utfCount result of countUTFBytes(str)
+     * @param buffer   buffer
+     * @param offset   offset
+     * @return new offset
+     * @throws IOException on error
+     */
+    @SuppressWarnings("deprecation")
+    public static int writeUTFBytesToBuffer(String str, int utfCount, byte[] buffer, int offset) throws IOException {
+        int length = str.length();
+        if (utfCount == length) {
+            str.getBytes(0, length, buffer, offset);
+            return offset + length;
+        }
+        return writeUTFBytesToBuffer(str, buffer, offset);
+    }
+
     public static int writeUTFBytesToBuffer(String str, byte[] buffer, int offset) throws IOException {
         int length = str.length();
         for (int i = 0; i < length; i++) {
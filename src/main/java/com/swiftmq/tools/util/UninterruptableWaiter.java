@@ -17,21 +17,41 @@
 
 package com.swiftmq.tools.util;
 
+import com.swiftmq.tools.concurrent.WaitStrategy;
+
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class UninterruptableWaiter {
     private final Lock lock;
     private final Condition condition;
-    private boolean signalled = false;
+    private volatile boolean signalled = false;
 
     public UninterruptableWaiter(Lock lock) {
         this.lock = lock;
         this.condition = lock.newCondition();
     }
 
+    // The signaller needs the lock, so it is released while spinning, as await would do
+    private void spin(long maxNanos) {
+        if (maxNanos < 0 || !WaitStrategy.isSpinning() || !(lock instanceof ReentrantLock))
+            return;
+        ReentrantLock rl = (ReentrantLock) lock;
+        int holds = rl.getHoldCount();
+        for (int i = 0; i < holds; i++)
+            rl.unlock();
+        try {
+            WaitStrategy.spinUntil(() -> signalled, maxNanos);
+        } finally {
+            for (int i = 0; i < holds; i++)
+                rl.lock();
+        }
+    }
+
     public void doWait() {
+        spin(0);
         lock.lock();
         try {
             boolean wasInterrupted = Thread.interrupted();
@@ -60,10 +80,12 @@ public class UninterruptableWaiter {
             doWait();
             return;
         }
+        long start = System.nanoTime();
+        spin(TimeUnit.MILLISECONDS.toNanos(timeout));
         lock.lock();
         try {
             boolean wasInterrupted = Thread.interrupted();
-            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout) - (System.nanoTime() - start);
             while (!signalled && nanos > 0L) {
                 try {
                     nanos = condition.awaitNanos(nanos);
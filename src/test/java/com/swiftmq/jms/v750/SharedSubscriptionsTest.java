@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.jms.v750;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SharedSubscriptionsTest {
+    @Test
+    public void testOwner() {
+        SharedSubscriptions subscriptions = new SharedSubscriptions("shared_");
+        assertEquals("app1", subscriptions.getOwner("app1", "orders"));
+        assertEquals("shared_orders", subscriptions.getOwner(null, "orders"));
+        assertEquals("x-orders", new SharedSubscriptions("x-").getOwner(null, "orders"));
+    }
+
+    @Test
+    public void testQueueName() {
+        SharedSubscriptions subscriptions = new SharedSubscriptions("shared_");
+        // every connection without client ID ends up on the same durable subscriber queue
+        assertEquals("shared_orders$orders", SharedSubscriptions.getQueueName(subscriptions.getOwner(null, "orders"), "orders"));
+        assertEquals("app1$orders", SharedSubscriptions.getQueueName(subscriptions.getOwner("app1", "orders"), "orders"));
+    }
+
+    @Test
+    public void testAttach() {
+        SharedSubscriptions subscriptions = new SharedSubscriptions("shared_");
+        String key = SharedSubscriptions.getKey("shared_a$a", "t1", null);
+        String other = SharedSubscriptions.getKey("shared_ab$ab", "t1", null);
+        assertFalse(subscriptions.isAttached(key));
+        subscriptions.setAttached(key);
+        subscriptions.setAttached(other);
+        assertTrue(subscriptions.isAttached(key));
+        assertFalse(subscriptions.isAttached(SharedSubscriptions.getKey("shared_a$a", "t2", null)));
+        assertFalse(subscriptions.isAttached(SharedSubscriptions.getKey("shared_a$a", "t1", "a > 1")));
+        subscriptions.detach("shared_a$a");
+        assertFalse(subscriptions.isAttached(key));
+        assertTrue(subscriptions.isAttached(other));
+    }
+
+    @Test
+    public void testConsumerCount() {
+        SharedSubscriptions subscriptions = new SharedSubscriptions("shared_");
+        String key = SharedSubscriptions.getKey("shared_a$a", "t1", null);
+        subscriptions.setAttached(key);
+        subscriptions.addConsumer("shared_a$a");
+        subscriptions.addConsumer("shared_a$a");
+        subscriptions.addConsumer("shared_b$b");
+        assertEquals(2, subscriptions.getConsumerCount("shared_a$a"));
+        assertFalse(subscriptions.removeConsumer("shared_a$a"));
+        assertTrue(subscriptions.isAttached(key));
+        assertTrue(subscriptions.removeConsumer("shared_a$a"));
+        assertEquals(0, subscriptions.getConsumerCount("shared_a$a"));
+        // forgotten, the next consumer creates the subscription again
+        assertFalse(subscriptions.isAttached(key));
+        assertFalse(subscriptions.removeConsumer("shared_a$a"));
+        assertEquals(1, subscriptions.getConsumerCount("shared_b$b"));
+    }
+}
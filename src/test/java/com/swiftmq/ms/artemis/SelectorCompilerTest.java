@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.ms.artemis;
+
+import com.swiftmq.jms.MessageImpl;
+import com.swiftmq.ms.artemis.filter.BooleanExpression;
+import com.swiftmq.ms.artemis.filter.FilterException;
+import com.swiftmq.ms.artemis.impl.SelectorCompiler;
+import com.swiftmq.ms.artemis.impl.SelectorParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares compiled selectors with the interpreter on randomized messages, including missing
+ * properties, type mismatches, IN/NOT IN and NOT over NULL.
+ */
+public class SelectorCompilerTest {
+    private static final String[] TERMS = {
+            "a = 5", "a = 5.0", "a > 3.5", "3 < a", "a <= -2", "a >= 10", "-1 > a", "a <> 5", "a = b",
+            "a BETWEEN 2 AND 6", "a NOT BETWEEN 2 AND 6", "a + 1 > 5",
+            "s = 'x'", "'y' = s", "s <> 'x'", "s IN ('x', 'y')", "s NOT IN ('x', 'y')", "s LIKE 'x%'",
+            "flag = TRUE", "flag = FALSE", "flag",
+            "a IS NULL", "a IS NOT NULL", "s IS NULL", "s IS NOT NULL",
+            "JMSPriority > 4", "JMSPriority = 4", "JMSPriority IS NULL", "JMSTimestamp >= 1000", "JMSTimestamp < 500.5",
+            "JMSType = 'order'", "JMSType IN ('order', 'cancel')", "JMSType IS NULL",
+            "JMSCorrelationID NOT IN ('c1', 'c2')", "JMSDeliveryMode = 'PERSISTENT'"
+    };
+
+    private static String randomSelector(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0)
+            return TERMS[random.nextInt(TERMS.length)];
+        switch (random.nextInt(4)) {
+            case 0:
+                return "NOT (" + randomSelector(random, depth - 1) + ")";
+            case 1:
+                return "(" + randomSelector(random, depth - 1) + ") OR (" + randomSelector(random, depth - 1) + ")";
+            default:
+                return "(" + randomSelector(random, depth - 1) + ") AND (" + randomSelector(random, depth - 1) + ")";
+        }
+    }
+
+    // Missing, numeric of every type, string and boolean values
+    private static void setRandomNumeric(MessageImpl msg, String name, Random random) throws Exception {
+        int v = random.nextInt(15) - 4;
+        switch (random.nextInt(10)) {
+            case 0:
+            case 1:
+                break;
+            case 2:
+                msg.setIntProperty(name, v);
+                break;
+            case 3:
+                msg.setLongProperty(name, v);
+                break;
+            case 4:
+                msg.setDoubleProperty(name, v + 0.5);
+                break;
+            case 5:
+                msg.setFloatProperty(name, v);
+                break;
+            case 6:
+                msg.setShortProperty(name, (short) v);
+                break;
+            case 7:
+                msg.setByteProperty(name, (byte) v);
+                break;
+            case 8:
+                msg.setStringProperty(name, String.valueOf(v));
+                break;
+            default:
+                msg.setBooleanProperty(name, random.nextBoolean());
+        }
+    }
+
+    private static MessageImpl randomMessage(Random random) throws Exception {
+        MessageImpl msg = new MessageImpl();
+        setRandomNumeric(msg, "a", random);
+        setRandomNumeric(msg, "b", random);
+        switch (random.nextInt(6)) {
+            case 0:
+                break;
+            case 1:
+                msg.setIntProperty("s", 1);
+                break;
+            case 2:
+                msg.setBooleanProperty("s", true);
+                break;
+            default:
+                msg.setStringProperty("s", new String[]{"x", "y", "z", "xx"}[random.nextInt(4)]);
+        }
+        switch (random.nextInt(5)) {
+            case 0:
+                break;
+            case 1:
+                msg.setStringProperty("flag", "true");
+                break;
+            case 2:
+                msg.setIntProperty("flag", 1);
+                break;
+            default:
+                msg.setBooleanProperty("flag", random.nextBoolean());
+        }
+        msg.setJMSPriority(random.nextInt(10));
+        msg.setJMSTimestamp(random.nextInt(2000));
+        if (random.nextBoolean())
+            msg.setJMSType(random.nextBoolean() ? "order" : "other");
+        if (random.nextBoolean())
+            msg.setJMSCorrelationID("c" + random.nextInt(4));
+        return msg;
+    }
+
+    private static boolean matches(SelectorCompiler.CompiledSelector selector, MessageImpl msg) throws FilterException {
+        MessageSelector filterable = new MessageSelector(null);
+        filterable.current = msg;
+        return selector.matches(msg, filterable);
+    }
+
+    private static void check(String selector, List<MessageImpl> messages) throws Exception {
+        BooleanExpression expression = SelectorParser.parse(selector);
+        SelectorCompiler.CompiledSelector compiled = SelectorCompiler.compile(expression);
+        SelectorCompiler.CompiledSelector interpreted = SelectorCompiler.interpret(expression);
+        for (MessageImpl msg : messages) {
+            boolean expected;
+            try {
+                expected = matches(interpreted, msg);
+            } catch (Exception e) {
+                // e.g. arithmetic on a boolean, the compiled selector must fail the same way
+                try {
+                    matches(compiled, msg);
+                    fail(selector + ": interpreter failed with " + e + ", compiled not");
+                } catch (Exception compiledException) {
+                    assertEquals(selector, e.getClass(), compiledException.getClass());
+                }
+                continue;
+            }
+            assertEquals(selector + " on " + msg.getField("a") + "/" + msg.getField("b") + "/" + msg.getField("s") + "/" + msg.getField("flag"),
+                    expected, matches(compiled, msg));
+        }
+    }
+
+    @Test
+    public void testTerms() throws Exception {
+        Random random = new Random(34);
+        List<MessageImpl> messages = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            messages.add(randomMessage(random));
+        for (String term : TERMS) {
+            check(term, messages);
+            check("NOT (" + term + ")", messages);
+            check("NOT (NOT (" + term + "))", messages);
+        }
+    }
+
+    @Test
+    public void testNullSemantics() throws Exception {
+        List<MessageImpl> messages = new ArrayList<>();
+        messages.add(new MessageImpl());
+        String[] selectors = {
+                "NOT (a > 1)", "NOT (a = 1)", "NOT (s IN ('x'))", "NOT (s NOT IN ('x'))",
+                "(a > 1) OR (s = 'x')", "NOT ((a > 1) OR (s = 'x'))", "NOT ((a > 1) AND (s IN ('x')))",
+                "(a > 1) AND (a IS NULL)", "NOT ((a > 1) OR (a IS NULL))", "NOT (flag = TRUE)", "NOT (flag)"
+        };
+        for (String selector : selectors)
+            check(selector, messages);
+    }
+
+    @Test
+    public void testRandomSelectors() throws Exception {
+        Random random = new Random(4711);
+        List<MessageImpl> messages = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            messages.add(randomMessage(random));
+        for (int i = 0; i < 5000; i++)
+            check(randomSelector(random, 4), messages);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.tools.queue;
+
+import com.swiftmq.client.thread.PoolManager;
+import com.swiftmq.swiftlet.threadpool.AsyncTask;
+import com.swiftmq.swiftlet.threadpool.ThreadPool;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the delivery latency saved by direct dispatch. A reader thread passes timestamped
+ * elements to a SingleProcessorQueue, either with enqueue, which hands them to a processor
+ * of the session pool like SessionImpl does, or with processDirect. It is not run by the
+ * build; start it with
+ * <pre>
+ * java -cp target/classes:target/test-classes com.swiftmq.tools.queue.DirectDispatchBenchmark [messages] [intervalMicros]
+ * </pre>
+ * Only the session hand-off is measured, not network and router time, which are the same in both modes.
+ */
+public class DirectDispatchBenchmark {
+    private static volatile long sink;
+
+    private static class LatencyQueue extends SingleProcessorQueue {
+        final ThreadPool pool = PoolManager.getInstance().getSessionPool();
+        final long[] latencies;
+        volatile int count = 0;
+        final AsyncTask task = new AsyncTask() {
+            public boolean isValid() {
+                return !isClosed();
+            }
+
+            public String getDispatchToken() {
+                return "benchmark";
+            }
+
+            public String getDescription() {
+                return "DirectDispatchBenchmark";
+            }
+
+            public void run() {
+                if (!isClosed() && dequeue())
+                    pool.dispatchTask(this);
+            }
+
+            public void stop() {
+            }
+        };
+
+        LatencyQueue(int n) {
+            super(100);
+            latencies = new long[n];
+        }
+
+        protected void startProcessor() {
+            pool.dispatchTask(task);
+        }
+
+        protected void process(Object[] bulk, int n) {
+            long now = System.nanoTime();
+            for (int i = 0; i < n; i++)
+                latencies[count++] = now - (Long) bulk[i];
+            sink += n;
+        }
+    }
+
+    private static long[] run(boolean direct, int n, long intervalNanos) {
+        LatencyQueue queue = new LatencyQueue(n);
+        queue.startQueue();
+        for (int i = 0; i < n; i++) {
+            Long timestamp = System.nanoTime();
+            if (direct)
+                queue.processDirect(timestamp);
+            else
+                queue.enqueue(timestamp);
+            long next = timestamp + intervalNanos;
+            while (System.nanoTime() < next)
+                Thread.onSpinWait();
+        }
+        while (queue.count < n)
+            LockSupport.parkNanos(100000);
+        queue.stopQueue();
+        queue.close();
+        long[] latencies = queue.latencies;
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static String percentile(long[] sorted, double p) {
+        return String.format("%.1f us", sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1000.0);
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long intervalNanos = (args.length > 1 ? Long.parseLong(args[1]) : 20) * 1000;
+        // warm up both paths
+        run(false, n / 10, intervalNanos);
+        run(true, n / 10, intervalNanos);
+        for (boolean direct : new boolean[]{false, true}) {
+            long[] latencies = run(direct, n, intervalNanos);
+            System.out.println(String.format("%-8s p50 %s, p99 %s, p99.9 %s, max %s",
+                    direct ? "direct" : "queued", percentile(latencies, 0.5), percentile(latencies, 0.99),
+                    percentile(latencies, 0.999), percentile(latencies, 1.0)));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.tools.sql;
+
+/**
+ * Compares LikeComparator with the character-walking comparator it replaced. It is not run
+ * by the build; start it with
+ * <pre>
+ * java -cp target/classes:target/test-classes com.swiftmq.tools.sql.LikeComparatorBenchmark [iterations]
+ * </pre>
+ * The times include the pattern cache lookup of LikeComparator.compare.
+ */
+public class LikeComparatorBenchmark {
+    private static final char NOT_SET = 255;
+    private static final String VALUE = "EU-WEST-1-PRIMARY";
+    private static final String[] CONDITIONS = {"EU-%-PRIMARY", "%PRIMARY", "%WEST%", "EU-%", "EU-____-1%", "%-%-%-PRIMARY"};
+    private static volatile int sink;
+
+    private static int getLastPosOfChar(String s, char stopChar, int pos) {
+        int startPos = pos;
+        if (pos + 1 < s.length()) {
+            for (int i = startPos + 1; i < s.length(); i++) {
+                if (s.charAt(i) == stopChar)
+                    startPos++;
+                else
+                    break;
+            }
+        }
+        return startPos;
+    }
+
+    // The previous implementation
+    static boolean legacyCompare(String s, String condition, char escapeChar, char singleChar, char anyChar) {
+        if (condition.length() == 1 && condition.charAt(0) == anyChar)
+            return true;
+        if (condition.length() == 0 && s.length() > 0)
+            return false;
+
+        int spos = 0;
+        int cpos = 0;
+        boolean prevWasEscape = false;
+        char cchar = NOT_SET;
+        try {
+            while (spos < s.length()) {
+                cchar = condition.charAt(cpos++);
+                if (escapeChar != NOT_SET && cchar == escapeChar)
+                    prevWasEscape = true;
+                else {
+                    if (cchar == singleChar && !prevWasEscape) {
+                        if (cpos == condition.length())
+                            return spos == s.length() - 1;
+                        spos++;
+                    } else if (cchar == anyChar && !prevWasEscape) {
+                        if (cpos == condition.length())
+                            return true;
+                        char stopChar = condition.charAt(cpos);
+                        for (; ; ) {
+                            if (s.charAt(spos) == stopChar) {
+                                int prevSPos = spos;
+                                spos = getLastPosOfChar(s, stopChar, spos);
+                                int sCharCnt = spos - prevSPos;
+                                int prevCPos = cpos;
+                                cpos = getLastPosOfChar(condition, stopChar, cpos);
+                                int cCharCnt = cpos - prevCPos;
+                                if (cCharCnt > sCharCnt)
+                                    return false;
+                                int lookSPos = spos;
+                                int lookCPos = cpos;
+                                boolean ok = true;
+                                while (lookSPos < s.length() && lookCPos < condition.length() && ok) {
+                                    if (condition.charAt(lookCPos) == anyChar || condition.charAt(lookCPos) == singleChar)
+                                        break;
+                                    else if (escapeChar != NOT_SET && condition.charAt(lookCPos) == escapeChar) {
+                                        lookCPos++;
+                                        if (lookCPos == condition.length())
+                                            break;
+                                    }
+                                    if (s.charAt(lookSPos) != condition.charAt(lookCPos)) {
+                                        ok = false;
+                                        break;
+                                    }
+                                    lookSPos++;
+                                    lookCPos++;
+                                }
+                                if (lookSPos < s.length() && lookCPos == condition.length())
+                                    return false;
+                                spos = lookSPos;
+                                if (ok) {
+                                    cpos = lookCPos;
+                                    break;
+                                }
+                            }
+                            spos++;
+                            if (spos == s.length())
+                                return false;
+                        }
+                    } else if (cchar != s.charAt(spos++))
+                        return false;
+                    prevWasEscape = false;
+                }
+            }
+        } catch (Exception e) {
+            return false;
+        }
+
+        return cpos == condition.length() || cpos == condition.length() - 1 && condition.charAt(condition.length() - 1) == LikeComparator.ANY;
+    }
+
+    private static double run(String condition, int iterations, boolean legacy) {
+        int n = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (legacy ? legacyCompare(VALUE, condition, '\\', LikeComparator.SINGLE, LikeComparator.ANY) : LikeComparator.compare(VALUE, condition, '\\'))
+                n++;
+        }
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+        sink += n;
+        return nanos;
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        System.out.println("'" + VALUE + "' LIKE ...");
+        for (String condition : CONDITIONS) {
+            double legacy = Double.MAX_VALUE;
+            double current = Double.MAX_VALUE;
+            for (int r = 0; r < 5; r++) {
+                legacy = Math.min(legacy, run(condition, iterations, true));
+                current = Math.min(current, run(condition, iterations, false));
+            }
+            System.out.println(String.format("%-16s %6.1f -> %6.1f ns/op", condition, legacy, current));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.tools.sql;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks LikeComparator against a java.util.regex translation of the LIKE condition.
+ */
+public class LikeComparatorTest {
+    private static final char NOT_SET = 255;
+
+    // '_' is any single char, '%' any sequence, an escaped char and everything else is a literal
+    private static Pattern reference(String condition, char escapeChar, char singleChar, char anyChar) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < condition.length(); i++) {
+            char c = condition.charAt(i);
+            if (escapeChar != NOT_SET && c == escapeChar) {
+                if (++i == condition.length())
+                    break;
+                b.append(Pattern.quote(String.valueOf(condition.charAt(i))));
+            } else if (c == singleChar)
+                b.append('.');
+            else if (c == anyChar)
+                b.append(".*");
+            else
+                b.append(Pattern.quote(String.valueOf(c)));
+        }
+        return Pattern.compile(b.toString(), Pattern.DOTALL);
+    }
+
+    private static void check(String s, String condition, char escapeChar, char singleChar, char anyChar) {
+        boolean expected = reference(condition, escapeChar, singleChar, anyChar).matcher(s).matches();
+        assertEquals("'" + s + "' LIKE '" + condition + "'", expected, LikeComparator.compare(s, condition, escapeChar, singleChar, anyChar));
+        assertEquals("'" + s + "' LIKE '" + condition + "' (compiled)", expected, LikeComparator.compile(condition, escapeChar, singleChar, anyChar).matches(s));
+    }
+
+    private static String random(Random random, String alphabet, int maxLength) {
+        int len = random.nextInt(maxLength + 1);
+        StringBuilder b = new StringBuilder(len);
+        for (int i = 0; i < len; i++)
+            b.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return b.toString();
+    }
+
+    @Test
+    public void testFixed() {
+        assertTrue(LikeComparator.compare("xabcabc", "%abc", '\\'));
+        assertTrue(LikeComparator.compare("12333", "12%3", '\\'));
+        assertFalse(LikeComparator.compare("sales", "sal", '\\'));
+        assertTrue(LikeComparator.compare("", "", '\\'));
+        assertTrue(LikeComparator.compare("", "%", '\\'));
+        assertFalse(LikeComparator.compare("", "_", '\\'));
+        assertTrue(LikeComparator.compare("EU-WEST-1-PRIMARY", "EU-%-PRIMARY", '\\'));
+        assertTrue(LikeComparator.compare("EU-WEST-1-PRIMARY", "EU-____-1%", '\\'));
+        assertFalse(LikeComparator.compare("EU-WEST-1-PRIMARY", "EU-___-1%", '\\'));
+        assertTrue(LikeComparator.compare("abab", "%ab%ab", '\\'));
+        assertFalse(LikeComparator.compare("ab", "%ab%ab", '\\'));
+    }
+
+    @Test
+    public void testEscape() {
+        assertTrue(LikeComparator.compare("100%", "100\\%", '\\'));
+        assertFalse(LikeComparator.compare("1000", "100\\%", '\\'));
+        assertTrue(LikeComparator.compare("a_b", "a\\_b", '\\'));
+        assertFalse(LikeComparator.compare("axb", "a\\_b", '\\'));
+        assertTrue(LikeComparator.compare("a\\b", "a\\\\b", '\\'));
+        assertTrue(LikeComparator.compare("x%y_z", "%\\%%\\_%", '\\'));
+        assertFalse(LikeComparator.compare("xy_z", "%\\%%\\_%", '\\'));
+        assertTrue(LikeComparator.compare("a!%", "a!!!%", '!'));
+        // without an escape char the backslash is a literal
+        assertTrue(LikeComparator.compare("a\\b", "a\\_", NOT_SET));
+        // the same condition with different escape chars must not share a cached pattern
+        assertTrue(LikeComparator.compare("a%", "a!%", '!'));
+        assertFalse(LikeComparator.compare("a%", "a!%", '\\'));
+        assertTrue(LikeComparator.compare("a!bc", "a!%", '\\'));
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(35);
+        for (int i = 0; i < 300000; i++) {
+            // a trailing escape char is ignored by both
+            check(random(random, "ab%_\\", 10), random(random, "ab_%\\", 8), '\\', '_', '%');
+        }
+    }
+
+    @Test
+    public void testRandomCustomChars() {
+        Random random = new Random(36);
+        for (int i = 0; i < 100000; i++) {
+            check(random(random, "ab?*", 10), random(random, "ab?*", 8), NOT_SET, '?', '*');
+            check(random(random, "ab_%", 10), random(random, "ab_%", 8), NOT_SET, '_', '%');
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.tools.util;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Random;
+
+/**
+ * Benchmark for the modified UTF-8 codec on 1 KB - 1 MB text bodies. It is not run by the
+ * build; start it with
+ * <pre>
+ * java -cp target/classes:target/test-classes com.swiftmq.tools.util.UTFUtilsBenchmark [runs]
+ * </pre>
+ * Each line prints the best time per call over all runs, for the char by char baseline
+ * and for UTFUtils.
+ */
+public class UTFUtilsBenchmark {
+    private static final int[] SIZES = {1024, 16 * 1024, 64 * 1024, 1024 * 1024};
+    private static volatile Object sink;
+
+    private static String ascii(int size, Random random) {
+        // JSON-like ASCII text
+        String chunk = "{\"id\":" + random.nextInt(100000) + ",\"name\":\"order\",\"qty\":12,\"price\":4.75},";
+        StringBuilder b = new StringBuilder(size + chunk.length());
+        while (b.length() < size)
+            b.append(chunk);
+        b.setLength(size);
+        return b.toString();
+    }
+
+    private static String mixed(int size, Random random) {
+        StringBuilder b = new StringBuilder(size);
+        while (b.length() < size)
+            b.append((char) (1 + random.nextInt(0xd7ff)));
+        return b.toString();
+    }
+
+    // Char by char decoder as used before the ASCII fast path
+    private static String baselineDecode(byte[] buf, int offset, int utfSize) throws UTFDataFormatException {
+        char[] out = new char[utfSize];
+        int count = 0, s = 0, a;
+        while (count < utfSize) {
+            if ((out[s] = (char) buf[offset + count++]) < '\u0080')
+                s++;
+            else if (((a = out[s]) & 0xe0) == 0xc0) {
+                if (count >= utfSize)
+                    throw new UTFDataFormatException();
+                int b = buf[offset + count++];
+                if ((b & 0xC0) != 0x80)
+                    throw new UTFDataFormatException();
+                out[s++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+            } else if ((a & 0xf0) == 0xe0) {
+                if (count + 1 >= utfSize)
+                    throw new UTFDataFormatException();
+                int b = buf[offset + count++];
+                int c = buf[offset + count++];
+                if (((b & 0xC0) != 0x80) || ((c & 0xC0) != 0x80))
+                    throw new UTFDataFormatException();
+                out[s++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+            } else {
+                throw new UTFDataFormatException();
+            }
+        }
+        return new String(out, 0, s);
+    }
+
+    private static int baselineCount(String str) {
+        int utfCount = 0, length = str.length();
+        for (int i = 0; i < length; i++) {
+            int charValue = str.charAt(i);
+            if (charValue > 0 && charValue <= 127)
+                utfCount++;
+            else if (charValue <= 2047)
+                utfCount += 2;
+            else
+                utfCount += 3;
+        }
+        return utfCount;
+    }
+
+    private static int iterations(int size) {
+        return Math.max(20, (64 * 1024 * 1024) / size);
+    }
+
+    private static long encode(String s, byte[] buffer, boolean baseline) throws IOException {
+        int n = iterations(s.length());
+        int total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            if (baseline)
+                total += baselineCount(s) + UTFUtils.writeUTFBytesToBuffer(s, buffer, 0);
+            else
+                total += UTFUtils.writeUTFBytesToBuffer(s, UTFUtils.countUTFBytes(s), buffer, 0);
+        }
+        long nanos = (System.nanoTime() - start) / n;
+        sink = total;
+        return nanos;
+    }
+
+    private static long decode(byte[] buffer, int utfSize, boolean baseline) throws IOException {
+        int n = iterations(utfSize);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++)
+            sink = baseline ? baselineDecode(buffer, 0, utfSize) : UTFUtils.convertFromUTF8(buffer, 0, utfSize);
+        return (System.nanoTime() - start) / n;
+    }
+
+    private static String format(long nanos) {
+        return nanos < 1000000 ? String.format("%.2f us", nanos / 1000.0) : String.format("%.2f ms", nanos / 1000000.0);
+    }
+
+    private static void run(String kind, String s, int runs) throws IOException {
+        int utfSize = UTFUtils.countUTFBytes(s);
+        byte[] buffer = new byte[utfSize];
+        UTFUtils.writeUTFBytesToBuffer(s, buffer, 0);
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int r = 0; r < runs; r++) {
+            best[0] = Math.min(best[0], encode(s, buffer, true));
+            best[1] = Math.min(best[1], encode(s, buffer, false));
+            best[2] = Math.min(best[2], decode(buffer, utfSize, true));
+            best[3] = Math.min(best[3], decode(buffer, utfSize, false));
+        }
+        System.out.println(String.format("%-6s %8d chars: encode %s -> %s, decode %s -> %s",
+                kind, s.length(), format(best[0]), format(best[1]), format(best[2]), format(best[3])));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Random random = new Random(47);
+        for (int size : SIZES)
+            run("ascii", ascii(size, random), runs);
+        for (int size : SIZES)
+            run("mixed", mixed(size, random), runs);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 IIT Software GmbH
+ *
+ * IIT Software GmbH licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.swiftmq.tools.util;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks UTFUtils, DataByteArrayInputStream/DataByteArrayOutputStream and LazyUTF8String
+ * against the modified UTF-8 of DataOutputStream.writeUTF and DataInputStream.readUTF.
+ */
+public class UTFUtilsTest {
+    private static final String[] FIXED = {
+            "",
+            "a",
+            "\0",
+            "abc\0def",
+            "0123456",
+            "01234567",
+            "012345678",
+            "{\"id\":4711,\"name\":\"swiftmq\"}",
+            "caf\u00e9 \u00fcber",
+            "\u007f\u0080\u07ff\u0800\uffff",
+            "\ud83d\ude00",
+            "abcdefgh\ud83d\ude00abcdefgh",
+            "\ud800",
+            "x\udc00y",
+            "\udc00\ud800",
+            "abcdefg\u00e9",
+            "abcdefgh\u00e9abcdefgh\0"
+    };
+
+    private static byte[] jdkEncode(String s) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeUTF(s);
+        dos.flush();
+        return bos.toByteArray();
+    }
+
+    private static String jdkDecode(byte[] b) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(b)).readUTF();
+    }
+
+    private static String randomString(Random random) {
+        int len = random.nextInt(300);
+        StringBuilder b = new StringBuilder(len);
+        int kind = random.nextInt(4);
+        for (int i = 0; i < len; i++) {
+            switch (kind) {
+                case 0:
+                    b.append((char) (1 + random.nextInt(127)));
+                    break;
+                case 1:
+                    b.append((char) random.nextInt(256));
+                    break;
+                case 2:
+                    b.append((char) random.nextInt(0x10000));
+                    break;
+                default:
+                    // mostly ASCII with occasional non-ASCII chars and NULs
+                    int r = random.nextInt(64);
+                    if (r == 0)
+                        b.append('\0');
+                    else if (r == 1)
+                        b.append((char) (0x80 + random.nextInt(0x780)));
+                    else if (r == 2)
+                        b.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                    else
+                        b.append((char) (32 + random.nextInt(95)));
+            }
+        }
+        return b.toString();
+    }
+
+    private static void check(String s) throws IOException {
+        byte[] expected = jdkEncode(s);
+        int utfCount = expected.length - 2;
+
+        assertEquals(s, utfCount, UTFUtils.countUTFBytes(s));
+
+        byte[] buffer = new byte[utfCount + 2];
+        int offset = UTFUtils.writeShortToBuffer(utfCount, buffer, 0);
+        assertEquals(utfCount + 2, UTFUtils.writeUTFBytesToBuffer(s, utfCount, buffer, offset));
+        assertArrayEquals(s, expected, buffer);
+        Arrays.fill(buffer, 2, buffer.length, (byte) 0);
+        assertEquals(utfCount + 2, UTFUtils.writeUTFBytesToBuffer(s, buffer, 2));
+        assertArrayEquals(s, expected, buffer);
+
+        DataByteArrayOutputStream dbos = new DataByteArrayOutputStream(16);
+        dbos.writeUTF(s);
+        assertArrayEquals(s, expected, Arrays.copyOf(dbos.getBuffer(), dbos.getCount()));
+
+        assertEquals(s, jdkDecode(expected));
+        assertEquals(s, UTFUtils.convertFromUTF8(expected, 2, utfCount));
+        assertEquals(s, UTFUtils.convertUTF8WithBuf(expected, new char[utfCount], 2, utfCount));
+        assertEquals(s, UTFUtils.decodeUTF(utfCount, new DataInputStream(new ByteArrayInputStream(expected, 2, utfCount))));
+        assertEquals(s, new DataByteArrayInputStream(expected).readUTF());
+
+        LazyUTF8String fromWire = new LazyUTF8String(new DataInputStream(new ByteArrayInputStream(expected)));
+        assertEquals(s, fromWire.getString());
+        assertArrayEquals(s, expected, new LazyUTF8String(s).getBuffer());
+    }
+
+    @Test
+    public void testFixedStrings() throws IOException {
+        for (String s : FIXED)
+            check(s);
+    }
+
+    @Test
+    public void testRandomStrings() throws IOException {
+        Random random = new Random(47);
+        for (int i = 0; i < 20000; i++)
+            check(randomString(random));
+    }
+
+    @Test
+    public void testAllChars() throws IOException {
+        StringBuilder b = new StringBuilder(0x10000);
+        for (int c = 0; c < 0x10000; c++)
+            b.append((char) c);
+        String all = b.toString();
+        for (int i = 0; i < all.length(); i += 16384)
+            check(all.substring(i, Math.min(all.length(), i + 16384)));
+    }
+
+    @Test
+    public void testASCIIPrefix() {
+        byte[] buf = new byte[40];
+        Arrays.fill(buf, (byte) 'a');
+        for (int off = 0; off < 8; off++) {
+            for (int len = 0; off + len <= buf.length; len++) {
+                assertEquals(len, UTFUtils.countASCIIPrefix(buf, off, len));
+                for (int pos = 0; pos < len; pos++) {
+                    buf[off + pos] = (byte) 0xc3;
+                    assertEquals(pos, UTFUtils.countASCIIPrefix(buf, off, len));
+                    buf[off + pos] = (byte) 'a';
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedInput() throws IOException {
+        byte[][] malformed = {
+                {(byte) 0xc3},
+                {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', (byte) 0xc3},
+                {(byte) 0xe2, (byte) 0x82},
+                {(byte) 0xc3, 'a'},
+                {(byte) 0xe2, 'a', (byte) 0xac},
+                {(byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80},
+                {(byte) 0x80}
+        };
+        for (byte[] b : malformed) {
+            byte[] wire = new byte[b.length + 2];
+            UTFUtils.writeShortToBuffer(b.length, wire, 0);
+            System.arraycopy(b, 0, wire, 2, b.length);
+            try {
+                jdkDecode(wire);
+                fail("JDK accepted " + Arrays.toString(b));
+            } catch (UTFDataFormatException expected) {
+            }
+            try {
+                UTFUtils.convertFromUTF8(wire, 2, b.length);
+                fail("accepted " + Arrays.toString(b));
+            } catch (UTFDataFormatException expected) {
+            }
+        }
+    }
+}